@@ -1,6 +1,7 @@
 package com.roselism.bottomsheet_alpha;
 
 import com.roselism.bottomsheet.BottomSheet;
+import com.roselism.bottomsheet.SheetScheduler;
 
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
@@ -18,33 +19,44 @@ public class MainActivity extends AppCompatActivity {
         button.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                BottomSheet.Builder sheet = new BottomSheet.Builder(MainActivity.this,
-                        R.style.BottomSheet_Dialog);
+                // a double tap still shows a single sheet
+                SheetScheduler.of(MainActivity.this).show(R.id.button,
+                        new SheetScheduler.SheetFactory() {
+                            @Override
+                            public BottomSheet create() {
+                                return createSheet();
+                            }
+                        });
+            }
+        });
+    }
 
-                sheet.sheet("Dropbox", "wz@youchai.me", new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
+    private BottomSheet createSheet() {
+        BottomSheet.Builder sheet = new BottomSheet.Builder(MainActivity.this,
+                R.style.BottomSheet_Dialog);
 
-                    }
-                });
+        sheet.sheet("Dropbox", "wz@youchai.me", new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
 
-                sheet.sheet("Google Drive", "hero21c@outlook.com", new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
+            }
+        });
 
-                    }
-                });
+        sheet.sheet("Google Drive", "hero21c@outlook.com", new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
 
-                sheet.sheet("Add Acccount", new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
+            }
+        });
 
-                    }
-                });
+        sheet.sheet("Add Acccount", new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
 
-                sheet.build().show();
             }
         });
+
+        return sheet.build();
     }
 
 }
@@ -0,0 +1,88 @@
+package com.roselism.bottomsheet;
+
+import android.view.MenuItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Adding, finding and removing groups of items in an {@link ActionMenu}. The menu is created
+ * without a context, which none of these operations use.
+ */
+@State(Scope.Benchmark)
+public class ActionMenuBenchmark {
+
+    private static final int GROUPS = 4;
+    private static final int LOOKUPS = 64;
+
+    @Param({"10", "100", "1000", "10000"})
+    int size;
+
+    private int[] orders;
+    private int[] lookups;
+    private ActionMenu menu;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        orders = new int[size];
+        for (int i = 0; i < size; i++) {
+            orders[i] = random.nextInt(size);
+        }
+        menu = fill(new ActionMenu(null));
+        lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = random.nextInt(size);
+        }
+    }
+
+    private ActionMenu fill(ActionMenu menu) {
+        for (int i = 0; i < size; i++) {
+            menu.add(i % GROUPS, i, orders[i], "item");
+        }
+        return menu;
+    }
+
+    @Benchmark
+    public int add() {
+        return fill(new ActionMenu(null)).size();
+    }
+
+    @Benchmark
+    public int findItem() {
+        int found = 0;
+        for (int id : lookups) {
+            MenuItem item = menu.findItem(id);
+            if (item != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int removeGroup(FilledMenu filled) {
+        filled.menu.removeGroup(0);
+        return filled.menu.size();
+    }
+
+    /**
+     * A fresh menu for every call, as removing a group changes it.
+     */
+    @State(Scope.Thread)
+    public static class FilledMenu {
+
+        ActionMenu menu;
+
+        @Setup(Level.Invocation)
+        public void setUp(ActionMenuBenchmark benchmark) {
+            menu = benchmark.fill(new ActionMenu(null));
+        }
+    }
+}
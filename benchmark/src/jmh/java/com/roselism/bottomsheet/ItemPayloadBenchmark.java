@@ -0,0 +1,37 @@
+package com.roselism.bottomsheet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding and decoding the json payload the builder packs into the title of every item.
+ */
+@State(Scope.Benchmark)
+public class ItemPayloadBenchmark {
+
+    private String encoded;
+    private String plain;
+
+    @Setup
+    public void setUp() {
+        encoded = ItemPayload.encode("Google Drive", "hero21c@outlook.com", BottomSheet.TWO);
+        plain = "Add account";
+    }
+
+    @Benchmark
+    public String encode() {
+        return ItemPayload.encode("Google Drive", "hero21c@outlook.com", BottomSheet.TWO);
+    }
+
+    @Benchmark
+    public CharSequence decode() {
+        return ItemPayload.decode(encoded).title;
+    }
+
+    @Benchmark
+    public CharSequence decodePlainTitle() {
+        return ItemPayload.decode(plain).title;
+    }
+}
@@ -0,0 +1,61 @@
+package com.roselism.bottomsheet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Indexing the texts of a sheet for its search field and answering the queries typed into it,
+ * one letter at a time.
+ */
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    private static final String[] WORDS = {"google", "drive", "dropbox", "mail", "message",
+            "share", "print", "copy", "link", "photos", "contacts", "notes", "music", "maps"};
+
+    @Param({"10", "100", "1000", "10000"})
+    int items;
+
+    private String[][] texts;
+    private SearchIndex index;
+    private String[] keystrokes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        texts = new String[items][];
+        for (int i = 0; i < items; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String content = random.nextBoolean() ? "user" + random.nextInt(items) + "@example.com"
+                    : null;
+            texts[i] = new String[]{title, content};
+        }
+        index = SearchIndex.build(texts);
+
+        String query = "dr pho";
+        keystrokes = new String[query.length()];
+        for (int i = 0; i < keystrokes.length; i++) {
+            keystrokes[i] = query.substring(0, i + 1);
+        }
+    }
+
+    @Benchmark
+    public int build() {
+        return SearchIndex.build(texts).getItemCount();
+    }
+
+    @Benchmark
+    public int query() {
+        int sum = 0;
+        for (String keystroke : keystrokes) {
+            sum += index.query(keystroke).length;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,83 @@
+package com.roselism.bottomsheet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Building the section index of {@link SimpleSectionedGridAdapter} and mapping positions through
+ * it, for a sheet with a section every few items.
+ */
+@State(Scope.Benchmark)
+public class SectionIndexBenchmark {
+
+    private static final int LOOKUPS = 256;
+
+    @Param({"10", "100", "1000", "10000"})
+    int items;
+
+    @Param({"1", "4"})
+    int columns;
+
+    private int[] firstPositions;
+    private SectionIndex index;
+    private int[] positions;
+    private int[] sectionedPositions;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] starts = new int[items];
+        int count = 0;
+        for (int position = 1 + random.nextInt(8); position < items;
+                position += 1 + random.nextInt(8)) {
+            starts[count++] = position;
+        }
+        firstPositions = new int[count];
+        System.arraycopy(starts, 0, firstPositions, 0, count);
+        index = SectionIndex.build(firstPositions, columns);
+
+        positions = new int[LOOKUPS];
+        sectionedPositions = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            positions[i] = random.nextInt(items);
+            sectionedPositions[i] = random.nextInt(items + index.size());
+        }
+    }
+
+    @Benchmark
+    public int build() {
+        return SectionIndex.build(firstPositions, columns).size();
+    }
+
+    @Benchmark
+    public int positionToSectionedPosition() {
+        int sum = 0;
+        for (int position : positions) {
+            sum += index.positionToSectionedPosition(position);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sectionedPositionToPosition() {
+        int sum = 0;
+        for (int position : sectionedPositions) {
+            sum += index.sectionedPositionToPosition(position);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int indexOf() {
+        int sum = 0;
+        for (int position : sectionedPositions) {
+            sum += index.indexOf(position);
+        }
+        return sum;
+    }
+}
@@ -22,13 +22,14 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.support.v4.internal.view.SupportMenu;
-import android.support.v7.view.menu.ActionMenuItem;
 import android.view.KeyEvent;
 import android.view.MenuItem;
 import android.view.SubMenu;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -45,7 +46,6 @@ class ActionMenu implements SupportMenu {
     private Context                         mContext;
     private boolean                         mIsQwerty;
     private ArrayList<ActionMenuItem>       mItems;
-    private ArrayList<View.OnClickListener> mClickListener;
 
     public ActionMenu(Context context) {
         mContext = context;
@@ -83,17 +83,6 @@ class ActionMenu implements SupportMenu {
         return (sCategoryToOrder[index] << CATEGORY_SHIFT) | (categoryOrder & USER_MASK);
     }
 
-    public ArrayList<View.OnClickListener> getClickListener() {
-        return mClickListener;
-    }
-
-    public void setClickListener(View.OnClickListener listener) {
-        if (mClickListener == null) {
-            mClickListener = new ArrayList<>();
-        }
-        mClickListener.add(listener);
-    }
-
     public Context getContext() {
         return mContext;
     }
@@ -142,7 +131,7 @@ class ActionMenu implements SupportMenu {
                     ri.activityInfo.applicationInfo.packageName,
                     ri.activityInfo.name));
             final MenuItem item = add(groupId, itemId, order, ri.loadLabel(pm))
-                    .setIcon(ri.loadIcon(pm))
+                    .setIcon(IconCache.load(ri, pm))
                     .setIntent(rintent);
             if (outSpecificItems != null && ri.specificIndex >= 0) {
                 outSpecificItems[ri.specificIndex] = item;
@@ -180,7 +169,7 @@ class ActionMenu implements SupportMenu {
     public void close() {
     }
 
-    private int findItemIndex(int id) {
+    int findItemIndex(int id) {
         final ArrayList<ActionMenuItem> items = mItems;
         final int itemCount = items.size();
         for (int i = 0; i < itemCount; i++) {
@@ -235,11 +224,8 @@ class ActionMenu implements SupportMenu {
     }
 
     public MenuItem add(String content, View.OnClickListener listener) {
-        if (mClickListener == null) {
-            mClickListener = new ArrayList<>();
-        }
-        MenuItem menuItem = add(0, 0, 0, content);
-        mClickListener.add(listener);
+        ActionMenuItem menuItem = (ActionMenuItem) add(0, 0, 0, content);
+        menuItem.setViewClickListener(listener);
         return menuItem;
     }
 
@@ -335,6 +321,84 @@ class ActionMenu implements SupportMenu {
         return mItems.size();
     }
 
+    /**
+     * @return the group id of every item, in order
+     */
+    int[] getGroupIds() {
+        int[] groupIds = new int[mItems.size()];
+        for (int i = 0; i < groupIds.length; i++) {
+            groupIds[i] = mItems.get(i).getGroupId();
+        }
+        return groupIds;
+    }
+
+    /**
+     * Put {@code item} in place of the item at {@code index}, keeping its position.
+     */
+    void setItem(int index, ActionMenuItem item) {
+        mItems.set(index, item);
+    }
+
+    /**
+     * Remove every item with {@code id}.
+     */
+    void removeItems(int id) {
+        Iterator<ActionMenuItem> iter = mItems.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getItemId() == id) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the position of {@code item}, or -1 if it is not in this menu
+     */
+    int indexOf(MenuItem item) {
+        return mItems.indexOf(item);
+    }
+
+    /**
+     * @return a menu of {@code items}, in the given order
+     */
+    ActionMenu withItems(List<ActionMenuItem> items) {
+        ActionMenu out = new ActionMenu(getContext());
+        out.mItems = new ArrayList<>(items);
+        return out;
+    }
+
+    /**
+     * Move the items with higher scores to the front of their section, a run of items of the
+     * same group. Items with equal scores keep their order and sections stay where they are.
+     *
+     * @param scores the score of every item, in order
+     */
+    void rank(final float[] scores) {
+        final int count = mItems.size();
+        final int[] sections = new int[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            sections[i] = i == 0 ? 0 : sections[i - 1]
+                    + (mItems.get(i).getGroupId() != mItems.get(i - 1).getGroupId() ? 1 : 0);
+        }
+        // a stable sort, ties keep their order
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (sections[a] != sections[b]) {
+                    return sections[a] < sections[b] ? -1 : 1;
+                }
+                return Float.compare(scores[b], scores[a]);
+            }
+        });
+        ArrayList<ActionMenuItem> items = new ArrayList<>(count);
+        for (int i : order) {
+            items.add(mItems.get(i));
+        }
+        mItems = items;
+    }
+
     ActionMenu clone(int size) {
         ActionMenu out = new ActionMenu(getContext());
         out.mItems = new ArrayList<>(this.mItems.subList(0, size));
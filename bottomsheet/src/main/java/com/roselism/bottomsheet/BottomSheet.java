@@ -16,6 +16,7 @@
 
 package com.roselism.bottomsheet;
 
+import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.Dialog;
@@ -25,6 +26,7 @@ import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.support.annotation.DimenRes;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntegerRes;
 import android.support.annotation.MenuRes;
@@ -32,31 +34,34 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 import android.support.annotation.StyleRes;
-import android.support.v7.view.menu.ActionMenuItem;
-import android.transition.ChangeBounds;
-import android.transition.Transition;
-import android.transition.TransitionManager;
+import android.support.v4.view.ViewCompat;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.SparseArray;
 import android.util.SparseIntArray;
 import android.view.Gravity;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.view.Window;
 import android.view.WindowManager;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
+import android.widget.EditText;
 import android.widget.GridView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -79,6 +84,47 @@ public class BottomSheet extends Dialog implements DialogInterface {
     public static final int NORMAL = 0x03;
     public static final int MENU = 0x04;
 
+    /** The sheet is fully open. */
+    public static final int STATE_FULL = 0;
+    /** The sheet shows up to half of the screen. */
+    public static final int STATE_HALF = 1;
+    /** Only the peek height of the sheet is shown. */
+    public static final int STATE_PEEK = 2;
+    /** The sheet is out of the screen. */
+    public static final int STATE_HIDDEN = 3;
+    /** The sheet is being dragged. */
+    public static final int STATE_DRAGGING = 4;
+    /** The sheet is moving to one of its anchors. */
+    public static final int STATE_SETTLING = 5;
+
+    /** Call click listeners right away, before the sheet is dismissed. */
+    public static final int CLICK_IMMEDIATE = 0;
+    /** Call click listeners once the dismiss animation has finished. */
+    public static final int CLICK_AFTER_DISMISS = 1;
+    /** Call click listeners when the main thread is next idle. */
+    public static final int CLICK_ON_IDLE = 2;
+
+    /** Use the low-end profile on low-RAM devices or when animations are turned off. */
+    public static final int PROFILE_AUTO = 0;
+    /** Use all transitions, animations and translucent system bars. */
+    public static final int PROFILE_DEFAULT = 1;
+    /** Skip transitions, layout animations and translucency, and keep smaller caches. */
+    public static final int PROFILE_LOW_END = 2;
+
+    /** The sheet slides in after being shown. */
+    public static final int PHASE_OPEN = 0;
+    /** The sheet follows a finger. */
+    public static final int PHASE_DRAG = 1;
+    /** The sheet moves to an anchor after a drag. */
+    public static final int PHASE_SETTLE = 2;
+    /** The sheet shows its full menu and grows to fit it. */
+    public static final int PHASE_EXPAND = 3;
+    /** The sheet slides out before being dismissed. */
+    public static final int PHASE_DISMISS = 4;
+
+    /** Item type of the rows standing in for the items of an {@link ItemProvider}. */
+    private static final int PLACEHOLDER = -1;
+
     private final SparseIntArray hidden = new SparseIntArray();
     private TranslucentHelper helper;
     private String moreText;
@@ -91,18 +137,43 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
     private boolean collapseListIcons;
     private GridView list;
+    private ClosableSlidingLayout mDialogView;
+    private boolean mDismissing;
     private SimpleSectionedGridAdapter adapter;
+    private ItemRendererRegistry renderers;
+    private EntryAnimation entryAnimation;
     private Builder builder;
     private ImageView icon;
 
     private int limit = -1;
+    /** Columns the collapsed cut-off was worked out for. */
+    private int splitColumns;
     private boolean cancelOnTouchOutside = true;
     private boolean cancelOnSwipeDown = true;
     private ActionMenu fullMenuItem;
     private ActionMenu menuItem;
     private ActionMenu actions;
+    /** The plan of the rows of {@link #actions}. */
+    private SheetLayoutModel layoutModel;
+    /** Height of the rows laid out so far, by view type. */
+    private final SparseIntArray rowHeights = new SparseIntArray();
     private OnDismissListener dismissListener;
     private OnShowListener showListener;
+    private OnSlideListener slideListener;
+    private ClickDispatcher clickDispatcher;
+    private Runnable dismissCallback;
+    private SheetOverlay overlay;
+    private ValueAnimator dimAnimator;
+    private boolean cancelable = true;
+    private boolean lowEnd;
+    private SheetFrameMonitor frameMonitor;
+    private final ShowTracer showTracer = new ShowTracer(this);
+    private ItemStream itemStream;
+    private boolean itemsLoading;
+    private EditText searchField;
+    private SheetFilter filter;
+    /** The menu shown before the search started, shown again once it is cleared. */
+    private ActionMenu searchBase;
 
     // default
     BottomSheet(Context context) {
@@ -154,6 +225,7 @@ public class BottomSheet extends Dialog implements DialogInterface {
     BottomSheet(Context context, int theme, Builder builder) {
         super(context, theme);
 
+        showTracer.begin(ShowTracer.STYLE);
         TypedArray a = getContext()
                 .obtainStyledAttributes(null, R.styleable.BottomSheet, R.attr.bottomSheetStyle, 0);
         mHasContent = builder.hasContent;
@@ -183,25 +255,21 @@ public class BottomSheet extends Dialog implements DialogInterface {
         } finally {
             a.recycle();
         }
+        showTracer.end(ShowTracer.STYLE);
 
+        lowEnd = PerformanceProfile.isLowEnd(context, builder.profile);
         // https://github.com/jgilfelt/SystemBarTint/blob/master/library/src/com/readystatesoftware/systembartint/SystemBarTintManager.java
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+        // an embedded sheet has no window of its own to make translucent
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && !builder.embedded && !lowEnd) {
+            showTracer.begin(ShowTracer.TRANSLUCENT);
             helper = new TranslucentHelper(this, context);
+            showTracer.end(ShowTracer.TRANSLUCENT);
         }
     }
 
 
-    /**
-     * Hacky way to get gridview's column number
-     */
     private int getNumColumns() {
-        try {
-            Field numColumns = GridView.class.getDeclaredField("mRequestedNumColumns");
-            numColumns.setAccessible(true);
-            return numColumns.getInt(list);
-        } catch (Exception e) {
-            return 1;
-        }
+        return ((PinnedSectionGridView) list).getNumColumns();
     }
 
     @Override
@@ -219,6 +287,12 @@ public class BottomSheet extends Dialog implements DialogInterface {
         cancelOnSwipeDown = cancel;
     }
 
+    @Override
+    public void setCancelable(boolean flag) {
+        super.setCancelable(flag);
+        cancelable = flag;
+    }
+
     @Override
     public void setOnShowListener(OnShowListener listener) {
         this.showListener = listener;
@@ -226,12 +300,21 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
     private void init(final Context context) {
         setCanceledOnTouchOutside(cancelOnTouchOutside);
-        final ClosableSlidingLayout mDialogView = (ClosableSlidingLayout) View
-                .inflate(context, R.layout.bottom_sheet_dialog, null);
+        ShowTracer.beginSection("BottomSheet#inflate");
+        mDialogView = (ClosableSlidingLayout) View.inflate(context, R.layout.bottom_sheet_dialog,
+                null);
 
         LinearLayout mainLayout = (LinearLayout) mDialogView.findViewById(R.id.bs_main);
-        mainLayout.addView(View.inflate(context, mHeaderLayoutId, null), 0);
-        setContentView(mDialogView);
+        View header = View.inflate(context, mHeaderLayoutId, null);
+        mainLayout.addView(header, 0);
+        if (builder.search) {
+            searchField = (EditText) View.inflate(context, R.layout.bs_search, null);
+            mainLayout.addView(searchField, 1);
+        }
+        ShowTracer.endSection();
+        if (!isEmbedded()) {
+            setContentView(mDialogView);
+        }
         if (!cancelOnSwipeDown) {
             mDialogView.swipeable = cancelOnSwipeDown;
         }
@@ -246,35 +329,69 @@ public class BottomSheet extends Dialog implements DialogInterface {
             public void onOpened() {
                 showFullItems();
             }
+
+            @Override
+            public void onStateChanged(int state) {
+                if (slideListener != null) {
+                    slideListener.onStateChanged(BottomSheet.this, state);
+                }
+            }
+
+            @Override
+            public void onSlide(float fraction) {
+                if (slideListener != null) {
+                    slideListener.onSlide(BottomSheet.this, fraction);
+                }
+            }
+        });
+        mDialogView.setAnchors(builder.anchors, builder.peekHeight > 0 ? builder.peekHeight
+                : context.getResources().getDimensionPixelSize(R.dimen.bs_peek_height));
+        if (slideListener == null) {
+            slideListener = builder.slideListener;
+        }
+        mDialogView.setSlideTracking(slideListener != null);
+        mDialogView.setDragPrediction(builder.predictDrag);
+        mDialogView.setUseLayers(!lowEnd);
+        if (builder.frameStatsListener != null) {
+            frameMonitor = new SheetFrameMonitor(context, this, builder.frameStatsListener);
+            mDialogView.setFrameMonitor(frameMonitor);
+        }
+        mDialogView.setOnTouchDown(new Runnable() {
+            @Override
+            public void run() {
+                entryAnimation.cancel();
+            }
         });
 
         super.setOnShowListener(new OnShowListener() {
             @Override
             public void onShow(DialogInterface dialogInterface) {
-                if (showListener != null) {
-                    showListener.onShow(dialogInterface);
-                }
-                list.setAdapter(adapter);
-                list.startLayoutAnimation();
-                if (builder.icon == null) {
-                    icon.setVisibility(View.GONE);
-                } else {
-                    icon.setVisibility(View.VISIBLE);
-                    icon.setImageDrawable(builder.icon);
-                }
+                onSheetShown();
             }
         });
         int[] location = new int[2];
         mDialogView.getLocationOnScreen(location);
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && helper != null) {
             mDialogView.setPadding(0, location[0] == 0 ? helper.mStatusBarHeight : 0, 0, 0);
             mDialogView.getChildAt(0).setPadding(0, 0, 0,
                     helper.mNavBarAvailable ? helper.getNavigationBarHeight(getContext())
                             + mDialogView.getPaddingBottom() : 0);
         }
 
-        final TextView title = (TextView) mDialogView.findViewById(R.id.bottom_sheet_title);
+        final TextView title;
+        if (mHeaderLayoutId == BsHeaderBinder.LAYOUT) {
+            BsHeaderBinder headerBinder = BsHeaderBinder.bind(header);
+            title = headerBinder.bottomSheetTitle;
+            icon = headerBinder.bottomSheetTitleImage;
+        } else if (mHeaderLayoutId == BsHeaderCenterBinder.LAYOUT) {
+            BsHeaderCenterBinder headerBinder = BsHeaderCenterBinder.bind(header);
+            title = headerBinder.bottomSheetTitle;
+            icon = headerBinder.bottomSheetTitleImage;
+        } else {
+            title = (TextView) header.findViewById(R.id.bottom_sheet_title);
+            icon = (ImageView) header.findViewById(R.id.bottom_sheet_title_image);
+        }
         if (builder.title != null) {
             title.setVisibility(View.VISIBLE);
             title.setText(builder.title);
@@ -283,9 +400,17 @@ public class BottomSheet extends Dialog implements DialogInterface {
 //                    : Gravity.LEFT);   // 不能动态设置?
         }
 
-        icon = (ImageView) mDialogView.findViewById(R.id.bottom_sheet_title_image);
         list = (GridView) mDialogView.findViewById(R.id.bottom_sheet_gridview);
         mDialogView.mTarget = list;
+        // lets the grid hand its scroll over to the sheet within one gesture on API 21+
+        ViewCompat.setNestedScrollingEnabled(list, true);
+        if (lowEnd) {
+            list.setLayoutAnimation(null);
+            list.setScrollingCacheEnabled(false);
+            //noinspection deprecation
+            list.setAnimationCacheEnabled(false);
+            IconCache.setLimit(IconCache.LOW_END_SIZE);
+        }
         if (!builder.grid) {
             list.setNumColumns(1);
         }
@@ -299,27 +424,29 @@ public class BottomSheet extends Dialog implements DialogInterface {
             }
         }
 
-        if (builder.limit > 0) {
-            limit = builder.limit * getNumColumns();
-        } else {
-            limit = Integer.MAX_VALUE;
+        if (builder.rankingKey != null && !builder.rank(false) && !builder.ranked) {
+            // the counts are still loading, order the items once they are in
+            UsageStore.get(context).whenLoaded(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isShowing()) {
+                        rankLate();
+                    }
+                }
+            });
         }
-
-        mDialogView.setCollapsible(false);
-
-        actions = builder.menu;
-        menuItem = actions;
-        // over the initial numbers
-        if (getMenu().size() > limit) {
-            fullMenuItem = builder.menu;
-            menuItem = builder.menu.clone(limit - 1);
-            ActionMenuItem item = new ActionMenuItem(context, 0, R.id.bs_more, 0, limit - 1,
-                    moreText);
-            item.setIcon(more);
-            menuItem.add(item);
-            actions = menuItem;
-            mDialogView.setCollapsible(true);
+        splitMenu();
+
+        ShowTracer.beginSection("BottomSheet#adapter");
+        renderers = new ItemRendererRegistry(NORMAL);
+        renderers.register(ONE, new OneLineRenderer());
+        renderers.register(TWO, new TwoLineRenderer());
+        renderers.register(NORMAL, new NormalRenderer());
+        if (builder.itemProvider != null) {
+            renderers.register(PLACEHOLDER, new PlaceholderRenderer());
         }
+        renderers.registerAll(builder.renderers);
+        final LayoutInflater inflater = LayoutInflater.from(context);
 
         BaseAdapter baseAdapter = new BaseAdapter() {
 
@@ -336,22 +463,7 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
             @Override
             public int getItemViewType(int position) {
-                MenuItem item = getItem(position);
-                String json = item.getTitle().toString();
-                int type = parseItemType(json) == null ? -1 : parseItemType(json);
-                switch (type) {
-                    case ONE:
-                        return ONE;
-
-                    case TWO:
-                        return TWO;
-
-                    case NORMAL:
-                        return NORMAL;
-
-                    default:
-                        return NORMAL;
-                }
+                return renderers.getViewType(payloadOf(getItem(position)).type);
             }
 
 
@@ -362,7 +474,7 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
             @Override
             public int getViewTypeCount() {
-                return 3;
+                return renderers.getViewTypeCount();
             }
 
             @Override
@@ -377,312 +489,443 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
             @Override
             public View getView(int position, View convertView, ViewGroup parent) {
-
-                int type = getItemViewType(position);
-                if (type == ONE) {
-                    OneItemViewHolder holder;
-                    if (convertView == null) {
-                        convertView = View.inflate(context,
-                                builder.grid ? mGridItemLayoutId : R.layout.bs_list_entry_hor_one,
-                                null);
-                        holder = new OneItemViewHolder(convertView);
-                        convertView.setTag(holder);
-                    } else {
-                        holder = (OneItemViewHolder) convertView.getTag();
+                for (int i = 0; i < hidden.size(); i++) {
+                    if (hidden.valueAt(i) <= position) {
+                        position++;
                     }
+                }
+                MenuItem item = getItem(position);
+                // renderers sharing a view type key share recycled rows, but each item is still
+                // created and bound by the renderer of its own type
+                ItemRenderer renderer = renderers.getRendererForType(payloadOf(item).type);
+                if (convertView == null) {
+                    convertView = renderer.onCreateView(inflater, parent);
+                    SheetStats.increment(SheetStats.ROW_INFLATIONS);
+                }
+                renderer.onBindView(convertView, item, position, getCount());
+                return convertView;
+            }
+        };
 
-                    for (int i = 0; i < hidden.size(); i++) {
-                        if (hidden.valueAt(i) <= position) {
-                            position++;
-                        }
-                    }
-                    holder.bindData2View(position);
-
-                } else if (type == TWO) {
-                    TwoItemViewHolder holder;
-                    if (convertView == null) {
-                        convertView = View.inflate(context,
-                                builder.grid ? mGridItemLayoutId : R.layout.bs_list_entry_hor_two,
-                                null);
-                        holder = new TwoItemViewHolder(convertView);
-                        convertView.setTag(holder);
-                    } else {
-                        holder = (TwoItemViewHolder) convertView.getTag();
+        adapter = new SimpleSectionedGridAdapter(context, baseAdapter);
+        list.setAdapter(adapter);
+        entryAnimation = new EntryAnimation(list);
+        adapter.setGridView(list);
+        ((PinnedSectionGridView) list).setOnColumnsChangedListener(
+                new PinnedSectionGridView.OnColumnsChangedListener() {
+                    @Override
+                    public void onColumnsChanged(int numColumns) {
+                        onGridColumnsChanged(numColumns);
                     }
+                });
+        ShowTracer.endSection();
 
-                    for (int i = 0; i < hidden.size(); i++) {
-                        if (hidden.valueAt(i) <= position) {
-                            position++;
-                        }
-                    }
-                    holder.bindData2View(position);
-                } else if (type == NORMAL) {
-                    NormalItemViewHolder holder;
-                    if (convertView == null) {
-                        convertView = View.inflate(context,
-                                builder.grid ? mGridItemLayoutId : R.layout.bs_list_entry_normal,
-                                null);
-                        holder = new NormalItemViewHolder(convertView);
-                        convertView.setTag(holder);
-                    } else {
-                        holder = (NormalItemViewHolder) convertView.getTag();
-                    }
+        list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
 
-                    for (int i = 0; i < hidden.size(); i++) {
-                        if (hidden.valueAt(i) <= position) {
-                            position++;
-                        }
-                    }
-                    holder.bindData2View(position);
+                if (((MenuItem) adapter.getItem(position)).getItemId() == R.id.bs_more) {
+                    showFullItems();
+                    mDialogView.setCollapsible(false);
+                    return;
+                }
+                if (builder.rankingKey != null) {
+                    UsageStore.get(context).record(builder.rankingKey,
+                            (MenuItem) adapter.getItem(position));
                 }
 
-                return convertView;
+                clickDispatcher.dispatch(new ItemClick(
+                        (ActionMenuItem) adapter.getItem(position), view, position));
+                dismiss();
+                if (mDismissing) {
+                    clickDispatcher.onDismissStarted();
+                }
+            }
+        });
+        clickDispatcher = new ClickDispatcher(builder.clickMode, builder.clickExecutor);
+        mDialogView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
             }
 
-            @Nullable
-            private String parseItemTitle(String json) {
-                try {
-                    JSONObject jsonObject = new JSONObject(json);
-                    String jsonTitle = jsonObject.getString("title");
-                    return jsonTitle;
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    return null;
-                }
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                clickDispatcher.onDismissed();
             }
+        });
 
-            private String parseItemContent(String json) {
-                try {
-                    JSONObject jsonObject = new JSONObject(json);
-                    String content = jsonObject.getString("mContent");
-                    return content;
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    return "";
-                }
+        if (builder.dismissListener != null) {
+            setOnDismissListener(builder.dismissListener);
+        }
+        if (searchField != null) {
+            initSearch();
+        }
+        setListLayout();
+    }
+
+    private void initSearch() {
+        filter = new SheetFilter(builder.searchExecutor, new SheetFilter.Receiver() {
+            @Override
+            public void onFiltered(@Nullable List<ActionMenuItem> items) {
+                showFiltered(items);
+            }
+        });
+        filter.setItems(getSearchableItems());
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
             }
 
-            @Nullable
-            private Integer parseItemType(String json) {
-                try {
-                    JSONObject jsonObject = new JSONObject(json);
-                    Integer type = jsonObject.getInt("type");
-                    return type;
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    return null;
-                }
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
             }
 
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter.setQuery(s);
+            }
+        });
+    }
 
-            class TwoItemViewHolder {
+    /**
+     * @return every item of the sheet but the placeholders
+     */
+    private List<ActionMenuItem> getSearchableItems() {
+        ArrayList<ActionMenuItem> items = new ArrayList<>(builder.menu.size());
+        for (int i = 0; i < builder.menu.size(); i++) {
+            ActionMenuItem item = (ActionMenuItem) builder.menu.getItem(i);
+            if (item.getItemId() != R.id.bs_placeholder && item.isVisible()) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
 
-                private TextView divider;
-                private TextView title;
-                private TextView mContent;
-                private ImageView image;
+    /**
+     * Show the result of a search in the rows already on screen, or what was shown before the
+     * search once {@code items} is null. The adapter stays the same, so rows are recycled and
+     * the ones showing the same item as before are not bound again.
+     */
+    private void showFiltered(@Nullable List<ActionMenuItem> items) {
+        entryAnimation.cancel();
+        if (items == null) {
+            // a query cleared before its first result may have held back streamed items
+            if (searchBase != null) {
+                actions = searchBase;
+                searchBase = null;
+                mDialogView.setCollapsible(actions == menuItem && menuItem != builder.menu);
+            }
+        } else {
+            if (searchBase == null) {
+                searchBase = actions;
+            }
+            // the result holds items the collapsed sheet hides, so it cannot collapse
+            actions = builder.menu.withItems(items);
+            mDialogView.setCollapsible(false);
+        }
+        updateItems();
+        setListLayout();
+    }
 
-                public TwoItemViewHolder(View convertView) {
-                    title = (TextView) convertView.findViewById(R.id.bs_list_title);
-                    image = (ImageView) convertView.findViewById(R.id.bs_list_image);
-                    mContent = (TextView) convertView.findViewById(R.id.bs_list_content);
-                    divider = (TextView) convertView.findViewById(R.id.bs_list_divider);
-                }
+    /**
+     * Runs the click handlers of one item, in the order {@link ActionMenuItem#invoke()}, the
+     * {@link View.OnClickListener} of the item, then the listeners of the builder.
+     */
+    private final class ItemClick implements Runnable {
 
-                private void bindData2View(int position) {
-                    MenuItem item = getItem(position);
-                    String json = item.getTitle().toString();
+        private final ActionMenuItem item;
+        private final View view;
+        private final int position;
 
-//                    title.setText(json);
-                    if (item.getIcon() == null) {
-                        image.setVisibility(collapseListIcons ? View.GONE : View.INVISIBLE);
-                    } else {
-                        image.setVisibility(View.VISIBLE);
-                        image.setImageDrawable(item.getIcon());
-                    }
+        ItemClick(ActionMenuItem item, View view, int position) {
+            this.item = item;
+            this.view = view;
+            this.position = position;
+        }
 
-                    boolean showDivider = getCount() > 1 && position != getCount() - 1;
-                    divider.setVisibility(showDivider ? View.VISIBLE : View.GONE);
-
-                    String itemTitle = parseItemTitle(json);
-                    String contentText = parseItemContent(json);
-                    title.setText(parseItemTitle(json));
-                    if (contentText != null && !contentText.trim().isEmpty()) {
-                        mContent.setText(contentText);
-                        mContent.setVisibility(View.VISIBLE);
-                        mContent.setEnabled(true);
-                    } else {
-                        mContent.setVisibility(View.INVISIBLE);
+        @Override
+        public void run() {
+            if (!item.invoke()) {
+                // the listener travels with the item, wherever placeholders, ranking or a search
+                // put it
+                View.OnClickListener listener = item.getViewClickListener();
+                if (listener != null) {
+                    listener.onClick(view);
+                } else {
+                    if (builder.menulistener != null) {
+                        builder.menulistener.onMenuItemClick(item);
+                    } else if (builder.listener != null) {
+                        builder.listener.onClick(BottomSheet.this, item.getItemId());
                     }
-
-                    image.setEnabled(item.isEnabled());
-                    title.setEnabled(item.isEnabled());
                 }
             }
+        }
+    }
+
+    /**
+     * @return the display title of an item of a sheet
+     */
+    public static CharSequence getItemTitle(@NonNull MenuItem item) {
+        return payloadOf(item).title;
+    }
+
+    /**
+     * @return the secondary text of a {@link #TWO} item, or an empty string
+     */
+    @NonNull
+    public static String getItemContent(@NonNull MenuItem item) {
+        return payloadOf(item).content;
+    }
+
+    private static ItemPayload payloadOf(MenuItem item) {
+        return item instanceof ActionMenuItem
+                ? ((ActionMenuItem) item).getPayload()
+                : ItemPayload.decode(item.getTitle());
+    }
+
+    /**
+     * Child views of a built-in row. Grid rows have neither content nor divider.
+     * <p/>
+     * Also remembers which item, at which version, the row was last bound to. Setting equal text
+     * on a TextView still requests a layout, so a rebind of unchanged data (e.g. after
+     * {@link BottomSheet#invalidate()}) must not touch the views at all.
+     */
+    private static class RowHolder {
+
+        final TextView  title;
+        final ImageView image;
+        @Nullable
+        final TextView  content;
+        @Nullable
+        final View      divider;
+
+        private MenuItem boundItem;
+        private int      boundVersion;
+        private boolean  boundDivider;
+
+        RowHolder(TextView title, ImageView image, @Nullable TextView content,
+                @Nullable View divider) {
+            this.title = title;
+            this.image = image;
+            this.content = content;
+            this.divider = divider;
+        }
+
+        static RowHolder create(int layoutId, View view) {
+            if (layoutId == BsListEntryHorOneBinder.LAYOUT) {
+                BsListEntryHorOneBinder b = BsListEntryHorOneBinder.bind(view);
+                return new RowHolder(b.bsListTitle, b.bsListImage, null, b.bsListDivider);
+            } else if (layoutId == BsListEntryHorTwoBinder.LAYOUT) {
+                BsListEntryHorTwoBinder b = BsListEntryHorTwoBinder.bind(view);
+                return new RowHolder(b.bsListTitle, b.bsListImage, b.bsListContent,
+                        b.bsListDivider);
+            } else if (layoutId == BsListEntryNormalBinder.LAYOUT) {
+                BsListEntryNormalBinder b = BsListEntryNormalBinder.bind(view);
+                return new RowHolder(b.bsListTitle, b.bsListImage, null, null);
+            } else if (layoutId == BsGridEntryBinder.LAYOUT) {
+                BsGridEntryBinder b = BsGridEntryBinder.bind(view);
+                return new RowHolder(b.bsListTitle, b.bsListImage, null, null);
+            }
+            // a layout supplied by the theme, resolve its children once at inflation
+            return new RowHolder((TextView) view.findViewById(R.id.bs_list_title),
+                    (ImageView) view.findViewById(R.id.bs_list_image),
+                    (TextView) view.findViewById(R.id.bs_list_content),
+                    view.findViewById(R.id.bs_list_divider));
+        }
 
-            class NormalItemViewHolder {
+        /**
+         * @return true if the row already shows this state, otherwise records it as bound
+         */
+        boolean isBound(MenuItem item, int version, boolean showDivider) {
+            if (item == boundItem && version == boundVersion && showDivider == boundDivider) {
+                return true;
+            }
+            boundItem = item;
+            boundVersion = version;
+            boundDivider = showDivider;
+            return false;
+        }
+    }
 
-                private TextView title;
-                private ImageView image;
+    /**
+     * Shared part of the {@link #ONE}, {@link #TWO} and {@link #NORMAL} renderers.
+     */
+    private abstract class DefaultRenderer implements ItemRenderer {
 
-                public NormalItemViewHolder(View convertView) {
-                    title = (TextView) convertView.findViewById(R.id.bs_list_title);
-                    image = (ImageView) convertView.findViewById(R.id.bs_list_image);
-                }
+        private final int listLayoutId;
 
-                private void bindData2View(int position) {
-                    MenuItem item = getItem(position);
-                    String json = item.getTitle().toString();
-                    String titleText = parseItemTitle(json) == null ? json : parseItemTitle(json);
-
-                    title.setText(titleText);
-                    if (item.getIcon() == null) {
-                        image.setVisibility(collapseListIcons ? View.GONE : View.INVISIBLE);
-                    } else {
-                        image.setVisibility(View.VISIBLE);
-                        image.setImageDrawable(item.getIcon());
-                    }
+        DefaultRenderer(int listLayoutId) {
+            this.listLayoutId = listLayoutId;
+        }
 
-                    image.setEnabled(item.isEnabled());
-                    title.setEnabled(item.isEnabled());
-                }
+        @NonNull
+        @Override
+        public View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup parent) {
+            int layoutId = builder.grid ? mGridItemLayoutId : listLayoutId;
+            View view = inflater.inflate(layoutId, parent, false);
+            view.setTag(RowHolder.create(layoutId, view));
+            return view;
+        }
+
+        @Override
+        public void onBindView(@NonNull View view, @NonNull MenuItem item, int position,
+                int count) {
+            RowHolder holder = (RowHolder) view.getTag();
+            boolean showDivider = count > 1 && position != count - 1;
+            if (holder.isBound(item, ((ActionMenuItem) item).getVersion(), showDivider)) {
+                SheetStats.increment(SheetStats.SKIPPED_BINDS);
+                return;
             }
+            SheetStats.increment(SheetStats.BINDS);
 
-//            class MenuItemViewHolder {
-//
-//                private TextView title;
-//                private ImageView image;
-//
-//                public MenuItemViewHolder(View convertView) {
-//                    title = (TextView) convertView.findViewById(R.id.bs_list_title);
-//                    image = (ImageView) convertView.findViewById(R.id.bs_list_image);
-//                }
-//
-//                private void bindData2View(int position) {
-//                    MenuItem item = getItem(position);
-//                    String titleText = item.getTitle().toString();
-////                    String titleText = parseItemTitle(json);
-//
-//                    title.setText(titleText);
-//                    if (item.getIcon() == null) {
-//                        image.setVisibility(collapseListIcons ? View.GONE : View.INVISIBLE);
-//                    } else {
-//                        image.setVisibility(View.VISIBLE);
-//                        image.setImageDrawable(item.getIcon());
-//                    }
-//
-//                    image.setEnabled(item.isEnabled());
-//                    title.setEnabled(item.isEnabled());
-//                }
-//            }
+            if (item.getIcon() == null) {
+                holder.image.setVisibility(collapseListIcons ? View.GONE : View.INVISIBLE);
+            } else {
+                holder.image.setVisibility(View.VISIBLE);
+                holder.image.setImageDrawable(item.getIcon());
+            }
+            if (holder.divider != null) {
+                holder.divider.setVisibility(showDivider ? View.VISIBLE : View.GONE);
+            }
+            ItemPayload payload = ((ActionMenuItem) item).getPayload();
+            holder.title.setText(payload.title);
+            bindContent(holder, payload);
 
-            class OneItemViewHolder {
+            holder.image.setEnabled(item.isEnabled());
+            holder.title.setEnabled(item.isEnabled());
+        }
 
-                private TextView divider;
-                private TextView title;
-                private ImageView image;
+        void bindContent(RowHolder holder, ItemPayload payload) {
+        }
 
-                public OneItemViewHolder(View convertView) {
-                    title = (TextView) convertView.findViewById(R.id.bs_list_title);
-                    image = (ImageView) convertView.findViewById(R.id.bs_list_image);
-                    divider = (TextView) convertView.findViewById(R.id.bs_list_divider);
-                }
+        @Nullable
+        @Override
+        public Object getViewTypeKey() {
+            return null;
+        }
+    }
 
-                private void bindData2View(int position) {
-                    MenuItem item = getItem(position);
-                    String json = item.getTitle().toString();
+    private class OneLineRenderer extends DefaultRenderer {
 
-                    title.setText(json);
-                    if (item.getIcon() == null) {
-                        image.setVisibility(collapseListIcons ? View.GONE : View.INVISIBLE);
-                    } else {
-                        image.setVisibility(View.VISIBLE);
-                        image.setImageDrawable(item.getIcon());
-                    }
+        OneLineRenderer() {
+            super(R.layout.bs_list_entry_hor_one);
+        }
+    }
 
-                    boolean showDivider = getCount() > 1 && position != getCount() - 1;
-                    divider.setVisibility(showDivider ? View.VISIBLE : View.GONE);
+    private class TwoLineRenderer extends DefaultRenderer {
 
-                    String itemTitle = parseItemTitle(json);
-                    String content = parseItemContent(json);
-                    title.setText(parseItemTitle(json));
+        TwoLineRenderer() {
+            super(R.layout.bs_list_entry_hor_two);
+        }
 
-                    image.setEnabled(item.isEnabled());
-                    title.setEnabled(item.isEnabled());
-                }
+        @Override
+        void bindContent(RowHolder holder, ItemPayload payload) {
+            if (holder.content == null) {
+                return;
             }
-        };
+            if (!payload.content.trim().isEmpty()) {
+                holder.content.setText(payload.content);
+                holder.content.setVisibility(View.VISIBLE);
+                holder.content.setEnabled(true);
+            } else {
+                holder.content.setVisibility(View.INVISIBLE);
+            }
+        }
+    }
 
-        adapter = new SimpleSectionedGridAdapter(context, baseAdapter, R.layout.bs_list_divider,
-                R.id.headerlayout, R.id.header);
-        list.setAdapter(adapter);
-        adapter.setGridView(list);
+    private class NormalRenderer extends DefaultRenderer {
 
-        list.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        NormalRenderer() {
+            super(R.layout.bs_list_entry_normal);
+        }
+    }
 
-                if (((MenuItem) adapter.getItem(position)).getItemId() == R.id.bs_more) {
-                    showFullItems();
-                    mDialogView.setCollapsible(false);
-                    return;
-                }
+    /**
+     * Stands in for an item of the {@link ItemProvider} until it arrives. All placeholders look
+     * the same, so there is nothing to bind.
+     */
+    private class PlaceholderRenderer implements ItemRenderer {
 
-                if (!((ActionMenuItem) adapter.getItem(position)).invoke()) {
-                    if (builder.menu.getClickListener() != null) {
-                        builder.menu.getClickListener().get(position).onClick(view);
-                    } else {
-                        if (builder.menulistener != null) {
-                            builder.menulistener
-                                    .onMenuItemClick((MenuItem) adapter.getItem(position));
-                        } else if (builder.listener != null) {
-                            builder.listener.onClick(BottomSheet.this,
-                                    ((MenuItem) adapter.getItem(position)).getItemId());
-                        }
-                    }
-                }
-                dismiss();
+        @NonNull
+        @Override
+        public View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup parent) {
+            if (!builder.grid) {
+                return inflater.inflate(R.layout.bs_list_entry_placeholder, parent, false);
             }
-        });
+            View view = inflater.inflate(mGridItemLayoutId, parent, false);
+            RowHolder holder = RowHolder.create(mGridItemLayoutId, view);
+            holder.image.setImageResource(R.drawable.bs_placeholder);
+            holder.title.setText(null);
+            return view;
+        }
 
-        if (builder.dismissListener != null) {
-            setOnDismissListener(builder.dismissListener);
+        @Override
+        public void onBindView(@NonNull View view, @NonNull MenuItem item, int position,
+                int count) {
+        }
+
+        @Nullable
+        @Override
+        public Object getViewTypeKey() {
+            return null;
         }
-        setListLayout();
     }
 
-    private void updateSection() {
+    /**
+     * @return whether the adapter was already notified of the change
+     */
+    private boolean updateSection() {
         actions.removeInvisible();
+        SheetLayoutModel planned = actions == builder.menu ? builder.preparedFull
+                : actions == menuItem ? builder.preparedShort : null;
+        // a grid has no sections
+        layoutModel = isPlannedFor(planned, actions) ? planned
+                : new SheetLayoutModel(builder.grid ? null : actions.getGroupIds(),
+                        actions.size(), getNumColumns(), 0);
 
         if (!builder.grid && actions.size() > 0) {
-            int groupId = actions.getItem(0).getGroupId();
-            ArrayList<SimpleSectionedGridAdapter.Section> sections = new ArrayList<>();
-            for (int i = 0; i < actions.size(); i++) {
-                if (actions.getItem(i).getGroupId() != groupId) {
-                    groupId = actions.getItem(i).getGroupId();
-                    sections.add(new SimpleSectionedGridAdapter.Section(i, null));
-                }
-            }
-            if (sections.size() > 0) {
+            int[] starts = layoutModel.getSectionStarts();
+            if (starts.length > 0) {
                 SimpleSectionedGridAdapter.Section[] s
-                        = new SimpleSectionedGridAdapter.Section[sections.size()];
-                sections.toArray(s);
-                adapter.setSections(s);
+                        = new SimpleSectionedGridAdapter.Section[starts.length];
+                for (int i = 0; i < starts.length; i++) {
+                    s[i] = new SimpleSectionedGridAdapter.Section(starts[i], null);
+                }
+                adapter.setSections(layoutModel.getSectionIndex(), layoutModel.getNumColumns(),
+                        s);
+                return true;
             } else {
-                adapter.mSections.clear();
+                adapter.clearSections();
             }
         }
+        return false;
+    }
+
+    /**
+     * A plan made ahead still holds if the grid has the columns it was made for and no item was
+     * added or removed since. Streamed items take the place of placeholders of the same group and
+     * ranking keeps the sections, so the groups in order cannot have changed otherwise.
+     */
+    private boolean isPlannedFor(SheetLayoutModel model, ActionMenu menu) {
+        return model != null && model.getNumColumns() == getNumColumns()
+                && model.getItemCount() == menu.size();
+    }
+
+    private void updateItems() {
+        if (!updateSection()) {
+            adapter.notifyDataSetChanged();
+        }
     }
 
     private void showFullItems() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            Transition changeBounds = new ChangeBounds();
-            changeBounds.setDuration(300);
-            TransitionManager.beginDelayedTransition(list, changeBounds);
+        entryAnimation.cancel();
+        if (!lowEnd) {
+            mDialogView.animateGrowth();
         }
+        // the full menu starts with the same items, so the rows on screen come back from the
+        // recycler at their positions and only the revealed rows are bound
         actions = fullMenuItem;
-        updateSection();
-        adapter.notifyDataSetChanged();
+        updateItems();
         list.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,
                 LinearLayout.LayoutParams.MATCH_PARENT));
         icon.setVisibility(View.VISIBLE);
@@ -697,9 +940,9 @@ public class BottomSheet extends Dialog implements DialogInterface {
     }
 
     private void showShortItems() {
+        entryAnimation.cancel();
         actions = menuItem;
-        updateSection();
-        adapter.notifyDataSetChanged();
+        updateItems();
         setListLayout();
 
         if (builder.icon == null) {
@@ -713,21 +956,353 @@ public class BottomSheet extends Dialog implements DialogInterface {
     @Override
     protected void onStart() {
         super.onStart();
+        onSheetStart();
+    }
+
+    private void onSheetStart() {
+        showTracer.begin(ShowTracer.START);
+        rankLate();
         showShortItems();
+        mDismissing = false;
+        if (builder.itemProvider != null && itemStream == null) {
+            startItems();
+        }
+        mDialogView.animateOpen();
+        if (!isEmbedded()) {
+            animateDim(getDimAmount());
+        }
+        if (!lowEnd) {
+            entryAnimation.start();
+        }
+        showTracer.awaitFirstFrame(mDialogView, builder.showTimingsListener);
+        showTracer.end(ShowTracer.START);
     }
 
-    private boolean hasDivider() {
-        return adapter.mSections.size() > 0;
+    /**
+     * Cut the menu off where the collapsed sheet ends and put the more item there, if it has more
+     * items than fit.
+     */
+    private void splitMenu() {
+        SheetLayoutModel model = builder.preparedFull;
+        if (!isPlannedFor(model, builder.menu)) {
+            model = new SheetLayoutModel(null, builder.menu.size(), getNumColumns(),
+                    builder.limit);
+        }
+        limit = builder.limit > 0 ? builder.limit * model.getNumColumns() : Integer.MAX_VALUE;
+        splitColumns = model.getNumColumns();
+
+        mDialogView.setCollapsible(false);
+
+        actions = builder.menu;
+        menuItem = actions;
+        fullMenuItem = null;
+        // over the initial numbers
+        if (model.isCollapsible()) {
+            int shortCount = model.getShortCount();
+            fullMenuItem = builder.menu;
+            menuItem = builder.menu.clone(shortCount);
+            ActionMenuItem item = new ActionMenuItem(getContext(), 0, R.id.bs_more, 0, shortCount,
+                    moreText);
+            item.setIcon(more);
+            menuItem.add(item);
+            actions = menuItem;
+            mDialogView.setCollapsible(true);
+        }
     }
 
-    private void setListLayout() {
-        // without divider, the height of gridview is correct
-        if (!hasDivider()) {
+    /**
+     * The cut-off was worked out for a column count estimated before the grid was measured. Work
+     * it out again for the one it resolved, keeping the sheet expanded and a search shown.
+     */
+    private void onGridColumnsChanged(int numColumns) {
+        if (numColumns == splitColumns) {
             return;
         }
-        list.getViewTreeObserver()
-                .addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                    @Override
+        boolean expanded = fullMenuItem != null
+                && (actions == fullMenuItem || searchBase == fullMenuItem);
+        ActionMenu searchResult = searchBase != null ? actions : null;
+        splitMenu();
+        ActionMenu base = expanded && fullMenuItem != null ? fullMenuItem : actions;
+        if (searchResult != null) {
+            searchBase = base;
+            actions = searchResult;
+            mDialogView.setCollapsible(false);
+        } else {
+            actions = base;
+        }
+        updateItems();
+        setListLayout();
+    }
+
+    /**
+     * Order the items by usage if the counts were still loading when the sheet was built. Only
+     * done while the rows are off screen and before any item was streamed in, so no row ever
+     * moves under the finger.
+     */
+    private void rankLate() {
+        if (builder.rankingKey != null && itemStream == null && builder.rank(false)) {
+            splitMenu();
+            if (filter != null) {
+                filter.setItems(getSearchableItems());
+            }
+        }
+    }
+
+    private void startItems() {
+        itemsLoading = true;
+        itemStream = new ItemStream(getContext(), new ItemStream.Receiver() {
+            @Override
+            public void onItems(List<ActionMenuItem> items, boolean finished) {
+                onItemsLoaded(items, finished);
+            }
+        });
+        builder.itemProvider.onLoadItems(itemStream);
+    }
+
+    /**
+     * Put the items in place of the first placeholders, or at the end once there are none left,
+     * and update the rows in place.
+     */
+    private void onItemsLoaded(List<ActionMenuItem> items, boolean finished) {
+        for (ActionMenuItem item : items) {
+            int index = builder.menu.findItemIndex(R.id.bs_placeholder);
+            if (index < 0) {
+                builder.menu.add(item);
+                continue;
+            }
+            builder.menu.setItem(index, item);
+            // the collapsed menu starts with the same items, so it holds the same placeholder
+            // unless that one is behind the more item
+            if (menuItem != builder.menu) {
+                index = menuItem.findItemIndex(R.id.bs_placeholder);
+                if (index >= 0) {
+                    menuItem.setItem(index, item);
+                }
+            }
+        }
+        if (finished) {
+            itemsLoading = false;
+            removePlaceholders();
+        }
+        if (filter != null) {
+            filter.setItems(getSearchableItems());
+        }
+        // while a query is typed its result is on the way, showing placeholders or the more item
+        // until then would only make the rows jump
+        if (searchBase == null && (filter == null || !filter.isFiltering())) {
+            updateItems();
+            setListLayout();
+        }
+    }
+
+    /**
+     * Drop the placeholders no item arrived for. If every item now fits the collapsed sheet, its
+     * more item goes as well. That includes the slot of the more item itself, so as many items as
+     * the collapsed sheet shows rows are shown in full.
+     */
+    private void removePlaceholders() {
+        builder.menu.removeItems(R.id.bs_placeholder);
+        if (menuItem == builder.menu) {
+            return;
+        }
+        menuItem.removeItems(R.id.bs_placeholder);
+        if (fullMenuItem.size() <= menuItem.size()) {
+            if (actions == menuItem) {
+                actions = fullMenuItem;
+            }
+            if (searchBase == menuItem) {
+                searchBase = fullMenuItem;
+            }
+            menuItem = fullMenuItem;
+            mDialogView.setCollapsible(false);
+        }
+    }
+
+    private void onSheetShown() {
+        showTracer.begin(ShowTracer.SHOWN);
+        if (showListener != null) {
+            showListener.onShow(this);
+        }
+        if (builder.icon == null) {
+            icon.setVisibility(View.GONE);
+        } else {
+            icon.setVisibility(View.VISIBLE);
+            icon.setImageDrawable(builder.icon);
+        }
+        showTracer.end(ShowTracer.SHOWN);
+    }
+
+    private void onSheetDismissed() {
+        if (dismissListener != null) {
+            dismissListener.onDismiss(this);
+        }
+        if (itemsLoading) {
+            itemsLoading = false;
+            itemStream.cancel();
+            builder.itemProvider.onCancel();
+            removePlaceholders();
+        }
+        if (filter != null) {
+            // clearing the text brings back the menu from before the search
+            searchField.setText(null);
+            filter.cancel();
+        }
+        if (limit != Integer.MAX_VALUE) {
+            showShortItems();
+        }
+        clickDispatcher.onDismissed();
+        if (frameMonitor != null) {
+            frameMonitor.end();
+        }
+        if (dismissCallback != null) {
+            dismissCallback.run();
+        }
+    }
+
+    private boolean isEmbedded() {
+        return builder != null && builder.embedded;
+    }
+
+    @Override
+    public void show() {
+        showTracer.onShow();
+        if (!isEmbedded()) {
+            super.show();
+            return;
+        }
+        if (overlay != null) {
+            return;
+        }
+        if (!(builder.context instanceof Activity)) {
+            throw new IllegalStateException("An embedded sheet needs to be built with an Activity");
+        }
+        if (mDialogView == null) {
+            showTracer.begin(ShowTracer.INIT);
+            init(getContext());
+            showTracer.end(ShowTracer.INIT);
+        }
+        overlay = new SheetOverlay(getContext(), mDialogView, getSheetWidth(), getDimAmount());
+        overlay.setOnOutsideTouch(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelable && cancelOnTouchOutside) {
+                    cancel();
+                }
+            }
+        });
+        overlay.setOnBack(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelable) {
+                    cancel();
+                }
+            }
+        });
+        ViewGroup decor = (ViewGroup) ((Activity) builder.context).getWindow().getDecorView();
+        decor.addView(overlay, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        overlay.showScrim();
+        onSheetStart();
+        onSheetShown();
+    }
+
+    @Override
+    public boolean isShowing() {
+        return isEmbedded() ? overlay != null : super.isShowing();
+    }
+
+    /**
+     * Slides the sheet out before the dialog is actually dismissed.
+     */
+    @Override
+    public void dismiss() {
+        if (isEmbedded()) {
+            if (overlay == null || mDismissing) {
+                return;
+            }
+            mDismissing = true;
+            overlay.hideScrim();
+            mDialogView.animateDismiss(new Runnable() {
+                @Override
+                public void run() {
+                    ViewGroup parent = (ViewGroup) overlay.getParent();
+                    if (parent != null) {
+                        parent.removeView(overlay);
+                    }
+                    overlay.removeView(mDialogView);
+                    overlay = null;
+                    onSheetDismissed();
+                }
+            });
+            return;
+        }
+        if (mDialogView == null || !isShowing()) {
+            super.dismiss();
+            return;
+        }
+        if (mDismissing) {
+            return;
+        }
+        mDismissing = true;
+        animateDim(0);
+        mDialogView.animateDismiss(new Runnable() {
+            @Override
+            public void run() {
+                BottomSheet.super.dismiss();
+            }
+        });
+    }
+
+    /**
+     * Fade the dim behind the window to {@code amount} along with the slide of the sheet. The
+     * window has no animation of its own, which would slide the sheet a second time, so its dim
+     * is faded here the way the scrim of an embedded sheet is.
+     */
+    private void animateDim(float amount) {
+        final Window window = getWindow();
+        float from = amount > 0 ? 0 : getDimAmount();
+        if (dimAnimator != null) {
+            // pick up from where a fade still running left the dim
+            dimAnimator.cancel();
+            from = (float) dimAnimator.getAnimatedValue();
+        }
+        if (lowEnd) {
+            window.setDimAmount(amount);
+            return;
+        }
+        dimAnimator = ValueAnimator.ofFloat(from, amount).setDuration(SheetOverlay.SCRIM_DURATION);
+        dimAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                window.setDimAmount((float) animation.getAnimatedValue());
+            }
+        });
+        window.setDimAmount(from);
+        dimAnimator.start();
+    }
+
+    private boolean hasDivider() {
+        return adapter.mSections.size() > 0;
+    }
+
+    /**
+     * Size the list to its rows. The grid measures every row as tall as its first, which headers
+     * are not, so the height comes from the plan of the rows instead. Row heights are taken per
+     * view type from the rows laid out so far; until every type shown was laid out once, the list
+     * is sized after the next layout pass.
+     */
+    private void setListLayout() {
+        // without divider, the height of gridview is correct
+        if (!hasDivider()) {
+            ((PinnedSectionGridView) list).setPlannedHeight(-1);
+            return;
+        }
+        if (applyListHeight()) {
+            return;
+        }
+        list.getViewTreeObserver()
+                .addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+                    @Override
                     public void onGlobalLayout() {
                         if (Build.VERSION.SDK_INT < 16) {
                             //noinspection deprecation
@@ -735,44 +1310,98 @@ public class BottomSheet extends Dialog implements DialogInterface {
                         } else {
                             list.getViewTreeObserver().removeOnGlobalLayoutListener(this);
                         }
+                        int first = list.getFirstVisiblePosition();
+                        for (int i = 0; i < list.getChildCount(); i++) {
+                            rowHeights.put(adapter.getItemViewType(first + i),
+                                    list.getChildAt(i).getHeight());
+                        }
                         View lastChild = list.getChildAt(list.getChildCount() - 1);
-                        if (lastChild != null) {
-                            list.setLayoutParams(new LinearLayout.LayoutParams(
-                                    LinearLayout.LayoutParams.MATCH_PARENT,
-                                    lastChild.getBottom() + lastChild.getPaddingBottom() + list
-                                            .getPaddingBottom()));
+                        if (lastChild == null) {
+                            return;
+                        }
+                        SheetStats.increment(SheetStats.LIST_LAYOUT_PASSES);
+                        if (!applyListHeight()) {
+                            // a row type is still off screen, fit the rows laid out
+                            setPlannedListHeight(lastChild.getBottom()
+                                    + lastChild.getPaddingBottom() - list.getPaddingTop());
                         }
                     }
                 });
     }
 
+    /**
+     * @return whether the height of every row type shown is known and the list was sized
+     */
+    private boolean applyListHeight() {
+        int headerHeight = rowHeights.get(adapter.getHeaderViewType(), -1);
+        if (layoutModel == null || headerHeight < 0) {
+            return false;
+        }
+        int[] itemHeights = new int[actions.size()];
+        for (int i = 0; i < itemHeights.length; i++) {
+            int type = renderers.getViewType(payloadOf(actions.getItem(i)).type);
+            itemHeights[i] = rowHeights.get(type, -1);
+            if (itemHeights[i] < 0) {
+                return false;
+            }
+        }
+        setPlannedListHeight(layoutModel.getListHeight(itemHeights, headerHeight,
+                list.getVerticalSpacing()));
+        return true;
+    }
+
+    /**
+     * @param height height of the rows, without the padding of the list
+     */
+    private void setPlannedListHeight(int height) {
+        ((PinnedSectionGridView) list).setPlannedHeight(height);
+        // the grid caps the planned height to what the sheet has room for
+        if (list.getLayoutParams().height != LinearLayout.LayoutParams.WRAP_CONTENT) {
+            list.setLayoutParams(new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.MATCH_PARENT,
+                    LinearLayout.LayoutParams.WRAP_CONTENT));
+        }
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        showTracer.begin(ShowTracer.INIT);
         init(getContext());
+        showTracer.end(ShowTracer.INIT);
 
+        showTracer.begin(ShowTracer.WINDOW);
         WindowManager.LayoutParams params = getWindow().getAttributes();
         params.height = ViewGroup.LayoutParams.WRAP_CONTENT;
         params.gravity = Gravity.BOTTOM;
-
-        TypedArray a = getContext().obtainStyledAttributes(new int[]{android.R.attr.layout_width});
-        try {
-            params.width = a.getLayoutDimension(0, ViewGroup.LayoutParams.MATCH_PARENT);
-        } finally {
-            a.recycle();
-        }
+        params.width = getSheetWidth();
         super.setOnDismissListener(new OnDismissListener() {
             @Override
             public void onDismiss(DialogInterface dialog) {
-                if (dismissListener != null) {
-                    dismissListener.onDismiss(dialog);
-                }
-                if (limit != Integer.MAX_VALUE) {
-                    showShortItems();
-                }
+                onSheetDismissed();
             }
         });
         getWindow().setAttributes(params);
+        showTracer.end(ShowTracer.WINDOW);
+    }
+
+    private int getSheetWidth() {
+        TypedArray a = getContext().obtainStyledAttributes(new int[]{android.R.attr.layout_width});
+        try {
+            return a.getLayoutDimension(0, ViewGroup.LayoutParams.MATCH_PARENT);
+        } finally {
+            a.recycle();
+        }
+    }
+
+    private float getDimAmount() {
+        TypedArray a = getContext()
+                .obtainStyledAttributes(new int[]{android.R.attr.backgroundDimAmount});
+        try {
+            return a.getFloat(0, 0.3f);
+        } finally {
+            a.recycle();
+        }
     }
 
     public Menu getMenu() {
@@ -784,8 +1413,7 @@ public class BottomSheet extends Dialog implements DialogInterface {
      * should call this.
      */
     public void invalidate() {
-        updateSection();
-        adapter.notifyDataSetChanged();
+        updateItems();
         setListLayout();
     }
 
@@ -794,6 +1422,122 @@ public class BottomSheet extends Dialog implements DialogInterface {
         this.dismissListener = listener;
     }
 
+    /**
+     * Run {@code callback} once the sheet is dismissed, after the dismiss listener. Unlike the
+     * listener it is not replaced by the builder.
+     */
+    void setDismissCallback(@Nullable Runnable callback) {
+        dismissCallback = callback;
+    }
+
+    /**
+     * @param listener notified of state changes and, every frame, of how far the sheet is open
+     */
+    public void setOnSlideListener(@Nullable OnSlideListener listener) {
+        slideListener = listener;
+        if (mDialogView != null) {
+            mDialogView.setSlideTracking(listener != null);
+        }
+    }
+
+    /**
+     * @return one of the {@code STATE_} constants
+     */
+    public int getState() {
+        return mDialogView == null ? STATE_HIDDEN : mDialogView.getState();
+    }
+
+    /**
+     * Follows the sheet between its anchors, for example to fade a scrim along with it.
+     */
+    public interface OnSlideListener {
+
+        /**
+         * @param state one of the {@code STATE_} constants
+         */
+        void onStateChanged(BottomSheet sheet, int state);
+
+        /**
+         * @param fraction how much of the sheet is shown, 1 when fully open and 0 when hidden
+         */
+        void onSlide(BottomSheet sheet, float fraction);
+    }
+
+    /**
+     * @return how long each phase of the first show took, or null until it drew its first frame
+     */
+    @Nullable
+    public SheetShowTimings getShowTimings() {
+        return showTracer.getTimings();
+    }
+
+    /**
+     * Loads the items of a sheet while it is already showing, for items that depend on I/O.
+     *
+     * @see Builder#items(ItemProvider, int)
+     */
+    public interface ItemProvider {
+
+        /**
+         * Start loading, called on the main thread the first time the sheet is shown. Do the
+         * loading elsewhere and hand the items to {@code sink} as they arrive.
+         */
+        void onLoadItems(@NonNull ItemSink sink);
+
+        /**
+         * The sheet was dismissed before {@link ItemSink#finish()}, stop loading. Items added from
+         * now on are ignored.
+         */
+        void onCancel();
+    }
+
+    /**
+     * Takes the items of an {@link ItemProvider}. May be used from any thread.
+     */
+    public interface ItemSink {
+
+        /**
+         * Add an item, shown as a {@link #TWO} row if it has content and as a {@link #NORMAL} row
+         * otherwise. Items of a grid need an icon.
+         */
+        void addItem(int id, @NonNull CharSequence title, @Nullable String content,
+                @Nullable Drawable icon);
+
+        /**
+         * No more items will follow, remove the placeholders that are left.
+         */
+        void finish();
+
+        /**
+         * @return whether the sheet was dismissed and further items would be ignored
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Receives a sheet built by {@link Builder#buildAsync}, on the main thread.
+     */
+    public interface OnSheetReadyListener {
+
+        void onSheetReady(BottomSheet sheet);
+    }
+
+    /**
+     * Receives the timings of the first show of a sheet, on the main thread once it is drawn.
+     */
+    public interface OnShowTimingsListener {
+
+        void onShowTimings(BottomSheet sheet, SheetShowTimings timings);
+    }
+
+    /**
+     * Receives the frame timings of each phase of a sheet, on the main thread once the phase ends.
+     */
+    public interface OnFrameStatsListener {
+
+        void onFrameStats(BottomSheet sheet, SheetFrameStats stats);
+    }
+
 
     public static class Builder {
 
@@ -808,6 +1552,25 @@ public class BottomSheet extends Dialog implements DialogInterface {
         private Drawable icon;
         private int limit = -1;
         private MenuItem.OnMenuItemClickListener menulistener;
+        private final SparseArray<ItemRenderer> renderers = new SparseArray<>();
+        private int[] anchors = {STATE_FULL};
+        private int peekHeight;
+        private OnSlideListener slideListener;
+        private boolean predictDrag;
+        private int clickMode = CLICK_IMMEDIATE;
+        private Executor clickExecutor;
+        private boolean embedded;
+        private int profile = PROFILE_AUTO;
+        private OnFrameStatsListener frameStatsListener;
+        private OnShowTimingsListener showTimingsListener;
+        private ItemProvider itemProvider;
+        private boolean search;
+        private Executor searchExecutor;
+        private String rankingKey;
+        private boolean ranked;
+        /** Plans of the full and the collapsed list made by {@link #prepare()}, if any. */
+        private SheetLayoutModel preparedFull;
+        private SheetLayoutModel preparedShort;
 
 
         public Builder(@NonNull Activity context) {
@@ -827,6 +1590,13 @@ public class BottomSheet extends Dialog implements DialogInterface {
             this.menu = new ActionMenu(context);
         }
 
+        /**
+         * @return the items added so far, placeholders included
+         */
+        ActionMenu getMenu() {
+            return menu;
+        }
+
         /**
          * Set menu resources as list item to display in BottomSheet
          *
@@ -848,16 +1618,9 @@ public class BottomSheet extends Dialog implements DialogInterface {
 
         public Builder sheet(String title, @Nullable String content,
                              View.OnClickListener listener) {
-            JSONObject jsonWriter = new JSONObject();
-            try {
-                jsonWriter.put("title", title);
-                jsonWriter.put("mContent", content == null ? "" : content);
-                jsonWriter.put("type", content == null ? BottomSheet.ONE : BottomSheet.TWO);
-                hasContent = content != null;
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            menu.add(jsonWriter.toString(), listener);
+            hasContent = content != null;
+            menu.add(ItemPayload.encode(title, content, content == null ? BottomSheet.ONE
+                    : BottomSheet.TWO), listener);
             return this;
         }
 
@@ -870,15 +1633,8 @@ public class BottomSheet extends Dialog implements DialogInterface {
          * @return This Builder object to allow for chaining of calls to set methods
          */
         public Builder sheet(int id, @DrawableRes int iconRes, @StringRes int textRes) {
-            JSONObject jsonWriter = new JSONObject();
-            try {
-                jsonWriter.put("title", context.getText(textRes));
-                jsonWriter.put("type", BottomSheet.NORMAL);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-
-            ActionMenuItem item = new ActionMenuItem(context, 0, id, 0, 0, jsonWriter.toString());
+            ActionMenuItem item = new ActionMenuItem(context, 0, id, 0, 0,
+                    ItemPayload.encode(context.getText(textRes), null, BottomSheet.NORMAL));
             item.setIcon(iconRes);
             menu.add(item);
 
@@ -886,47 +1642,128 @@ public class BottomSheet extends Dialog implements DialogInterface {
         }
 
         public Builder sheet(int id, @NonNull Drawable icon, @NonNull CharSequence text) {
-            JSONObject jsonWriter = new JSONObject();
-            try {
-                jsonWriter.put("title", text);
-                jsonWriter.put("type", BottomSheet.NORMAL);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-
-            ActionMenuItem item = new ActionMenuItem(context, 0, id, 0, 0, jsonWriter.toString());
+            ActionMenuItem item = new ActionMenuItem(context, 0, id, 0, 0,
+                    ItemPayload.encode(text, null, BottomSheet.NORMAL));
             item.setIcon(icon);
             menu.add(item);
             return this;
         }
 
         public Builder sheet(int id, @StringRes int textRes) {
+            return sheet(id, context.getText(textRes));
+        }
 
-            JSONObject jsonWriter = new JSONObject();
-            try {
-                jsonWriter.put("title", context.getText(textRes));
-                jsonWriter.put("type", BottomSheet.NORMAL);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+        public Builder sheet(int id, @NonNull CharSequence text) {
+            return sheet(id, text, BottomSheet.NORMAL);
+        }
 
-            menu.add(0, id, 0, jsonWriter.toString());
+        /**
+         * Add one item rendered by the {@link ItemRenderer} registered for {@code type}
+         *
+         * @param id   ID of item
+         * @param text title of item
+         * @param type item type passed to {@link #renderer(int, ItemRenderer)}
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder sheet(int id, @NonNull CharSequence text, int type) {
+            menu.add(0, id, 0, ItemPayload.encode(text, null, type));
             return this;
         }
 
-        public Builder sheet(int id, @NonNull CharSequence text) {
-            JSONObject jsonWriter = new JSONObject();
-            try {
-                jsonWriter.put("title", text);
-                jsonWriter.put("type", BottomSheet.NORMAL);
-            } catch (JSONException e) {
-                e.printStackTrace();
+        /**
+         * Render items of {@code type} with a custom row. Registering one of {@link #ONE},
+         * {@link #TWO} or {@link #NORMAL} replaces the built-in row of that type.
+         *
+         * @param type     item type
+         * @param renderer creates and binds the rows of this type
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder renderer(int type, @NonNull ItemRenderer renderer) {
+            renderers.put(type, renderer);
+            return this;
+        }
+
+        /**
+         * Load items with {@code provider} once the sheet is shown, so that it opens without
+         * waiting for them. Until they arrive the sheet shows {@code placeholders} placeholder
+         * rows at this point of the menu. Items take the place of the placeholders in order, any
+         * beyond them are added at the end. The collapsed height of a sheet with a
+         * {@link #limit(int) limit} is decided by the placeholders.
+         *
+         * @param provider     loads the items, it is cancelled if the sheet is dismissed first
+         * @param placeholders number of rows shown while loading
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder items(@NonNull ItemProvider provider, int placeholders) {
+            if (itemProvider != null) {
+                throw new IllegalStateException("A sheet takes one item provider");
             }
+            itemProvider = provider;
+            for (int i = 0; i < placeholders; i++) {
+                ActionMenuItem item = new ActionMenuItem(context, 0, R.id.bs_placeholder, 0, 0,
+                        ItemPayload.encode("", null, PLACEHOLDER));
+                item.setIcon(R.drawable.bs_placeholder);
+                item.setEnabled(false);
+                menu.add(item);
+            }
+            return this;
+        }
+
+        /**
+         * Show a search field above the items that filters them as the user types. An item
+         * matches if every word typed starts a word of its title, or of its content for a
+         * {@link #TWO} item. The items are indexed and searched off the main thread.
+         *
+         * @param executor runs indexing and queries, a shared background pool when null
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder search(@Nullable Executor executor) {
+            this.search = true;
+            this.searchExecutor = executor;
+            return this;
+        }
 
-            menu.add(0, id, 0, jsonWriter.toString());
+        /**
+         * Put the items picked most often first, within their section. Picks are counted per
+         * {@code key}, recent ones weigh more, and the counts are kept across app restarts.
+         * Items are told apart by id, or by title if they have none, so ids should be stable.
+         * <p>
+         * The counts are loaded in the background from this call on. A sheet built before they
+         * are loaded is ordered once they are, or when it is next shown, but never while it is
+         * on screen; {@link #buildAsync} waits for them.
+         * Items of an {@link ItemProvider} keep the order they arrive in.
+         *
+         * @param key identifies the sheet, sheets with the same key share their counts
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder ranking(@NonNull String key) {
+            this.rankingKey = key;
+            UsageStore.get(context);
             return this;
         }
 
+        /**
+         * Order the items by usage, once.
+         *
+         * @param wait whether to wait for the stored usage, otherwise the order is left alone
+         *             while it is still loading
+         * @return whether the items were ordered by this call
+         */
+        boolean rank(boolean wait) {
+            UsageStore store = UsageStore.get(context);
+            if (ranked || !wait && !store.isLoaded()) {
+                return false;
+            }
+            store.awaitLoaded();
+            ranked = true;
+            float[] scores = new float[menu.size()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = store.getScore(rankingKey, menu.getItem(i));
+            }
+            menu.rank(scores);
+            return true;
+        }
+
         public Builder title(@StringRes int titleRes) {
             title = context.getText(titleRes);
             return this;
@@ -979,6 +1816,64 @@ public class BottomSheet extends Dialog implements DialogInterface {
             return this;
         }
 
+        /**
+         * Prepare the data of the sheet on {@code executor}, then create the sheet on the main
+         * thread and hand it to {@code listener}. Item payloads are decoded, icons given as
+         * resources are loaded and, for a sheet with {@link #ranking}, the stored counts are
+         * waited for and the items ordered. The sections of a list and where it is cut off while
+         * collapsed are planned there as well. Creating, inflating and measuring the sheet still
+         * happen on the main thread.
+         * <p>
+         * If preparing fails, or {@code executor} rejects the work, the sheet is built on the main
+         * thread anyway, doing there whatever was left undone, as {@link #build} would.
+         * <p>
+         * Items may also be added on the executor thread before calling this, as long as the
+         * builder is only used by one thread at a time and not changed after this call.
+         *
+         * @return a handle to cancel the build or get the sheet once it is ready
+         */
+        public PendingSheet buildAsync(@NonNull Executor executor,
+                @NonNull OnSheetReadyListener listener) {
+            final PendingSheet pending = new PendingSheet(this, listener);
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.prepare();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.deliver();
+            }
+            return pending;
+        }
+
+        /**
+         * Do the work of showing the sheet that does not need the main thread.
+         */
+        void prepare() {
+            if (rankingKey != null) {
+                rank(true);
+            }
+            for (int i = 0; i < menu.size(); i++) {
+                ActionMenuItem item = (ActionMenuItem) menu.getItem(i);
+                item.getPayload();
+                item.getIcon();
+            }
+            // a list has one column, the columns of a grid are only known once it is inflated
+            if (!grid) {
+                int[] groupIds = menu.getGroupIds();
+                preparedFull = new SheetLayoutModel(groupIds, groupIds.length, 1, limit);
+                if (preparedFull.isCollapsible()) {
+                    // the more item closes the collapsed list, in the default group
+                    int shortCount = preparedFull.getShortCount();
+                    int[] shortIds = Arrays.copyOf(groupIds, shortCount + 1);
+                    shortIds[shortCount] = 0;
+                    preparedShort = new SheetLayoutModel(shortIds, shortIds.length, 1, 0);
+                }
+            }
+        }
+
         @SuppressLint("Override")
         public BottomSheet build() {
             BottomSheet dialog = new BottomSheet(context, theme, this);
@@ -995,6 +1890,119 @@ public class BottomSheet extends Dialog implements DialogInterface {
             this.dismissListener = listener;
             return this;
         }
+
+        /**
+         * Set the states the sheet may rest in when released. A release picks the anchor closest
+         * to where the fling would carry the sheet.
+         *
+         * @param states {@link #STATE_FULL}, {@link #STATE_HALF} or {@link #STATE_PEEK}, the
+         *               first one is where the sheet opens
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder anchors(int... states) {
+            if (states.length == 0) {
+                throw new IllegalArgumentException("At least one anchor is required");
+            }
+            for (int state : states) {
+                if (state != STATE_FULL && state != STATE_HALF && state != STATE_PEEK) {
+                    throw new IllegalArgumentException("Not an anchor state: " + state);
+                }
+            }
+            anchors = states.clone();
+            return this;
+        }
+
+        /**
+         * @param peekHeightRes visible height of the sheet in {@link #STATE_PEEK}
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder peekHeight(@DimenRes int peekHeightRes) {
+            peekHeight = context.getResources().getDimensionPixelSize(peekHeightRes);
+            return this;
+        }
+
+        public Builder slideListener(@NonNull OnSlideListener listener) {
+            this.slideListener = listener;
+            return this;
+        }
+
+        /**
+         * Let a dragged sheet lead the finger by its velocity over one frame, which hides the
+         * touch to display latency at the cost of a slight overshoot on sudden stops.
+         *
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder dragPrediction(boolean predict) {
+            this.predictDrag = predict;
+            return this;
+        }
+
+        /**
+         * Choose when item click listeners are called. Whatever the mode, every click is
+         * delivered exactly once, also when the sheet goes away without being dismissed.
+         *
+         * @param mode {@link #CLICK_IMMEDIATE} (the default), {@link #CLICK_AFTER_DISMISS} or
+         *             {@link #CLICK_ON_IDLE}
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder clickDispatch(int mode) {
+            this.clickMode = mode;
+            return this;
+        }
+
+        /**
+         * Call item click listeners on {@code executor} instead of the main thread.
+         *
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder clickExecutor(@Nullable Executor executor) {
+            this.clickExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Show the sheet as an overlay in the decor view of the activity, over an in-window
+         * scrim, instead of in a dialog window of its own. This skips creating a window each
+         * time the sheet is shown. The builder must have been created with an Activity.
+         *
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder embedded() {
+            this.embedded = true;
+            return this;
+        }
+
+        /**
+         * @param profile {@link #PROFILE_AUTO} (the default), {@link #PROFILE_DEFAULT} or
+         *                {@link #PROFILE_LOW_END}
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder performanceProfile(int profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        /**
+         * Record the duration of every frame while the sheet opens, is dragged, settles, expands
+         * and is dismissed, and report the aggregate of each phase to {@code listener}.
+         *
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder frameStatsListener(@Nullable OnFrameStatsListener listener) {
+            this.frameStatsListener = listener;
+            return this;
+        }
+
+        /**
+         * @param listener receives how long each phase of showing the sheet took, and the time
+         *                 from {@link BottomSheet#show()} to drawing its first frame apart from
+         *                 the time the sheet waited to be shown
+         * @return This Builder object to allow for chaining of calls to set methods
+         */
+        public Builder showTimingsListener(@Nullable OnShowTimingsListener listener) {
+            this.showTimingsListener = listener;
+            return this;
+        }
     }
 
 //    public static class MyAdapter extends BaseAdapter {
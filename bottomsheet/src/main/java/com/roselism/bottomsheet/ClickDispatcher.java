@@ -0,0 +1,114 @@
+package com.roselism.bottomsheet;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers item clicks of a sheet according to the dispatch mode of the builder. Every click is
+ * delivered exactly once: when its trigger arrives, or after {@link #FALLBACK_DELAY} if the
+ * trigger may never come. A click waiting for the dismiss is delivered when it ends or the sheet
+ * leaves its window; the fallback only covers a dismiss that never starts, so a dismiss slowed
+ * down by a busy main thread does not let the click run while the sheet is still on screen.
+ */
+final class ClickDispatcher {
+
+    private static final long FALLBACK_DELAY = 1000;
+
+    private final int mMode;
+    @Nullable
+    private final Executor mExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Delivery mPending;
+
+    /**
+     * @param mode     one of {@link BottomSheet#CLICK_IMMEDIATE},
+     *                 {@link BottomSheet#CLICK_AFTER_DISMISS} or {@link BottomSheet#CLICK_ON_IDLE}
+     * @param executor runs the click handlers, on the main thread when null
+     */
+    ClickDispatcher(int mode, @Nullable Executor executor) {
+        mMode = mode;
+        mExecutor = executor;
+    }
+
+    /**
+     * Dispatch a click, called on the main thread before the sheet starts dismissing.
+     */
+    void dispatch(Runnable click) {
+        Delivery delivery = new Delivery(click);
+        switch (mMode) {
+            case BottomSheet.CLICK_AFTER_DISMISS:
+                if (mPending != null) {
+                    // keep clicks in order
+                    mPending.run();
+                }
+                mPending = delivery;
+                mHandler.postDelayed(delivery, FALLBACK_DELAY);
+                break;
+            case BottomSheet.CLICK_ON_IDLE:
+                Looper.myQueue().addIdleHandler(delivery);
+                mHandler.postDelayed(delivery, FALLBACK_DELAY);
+                break;
+            default:
+                delivery.run();
+                break;
+        }
+    }
+
+    /**
+     * The sheet started sliding out, the click waiting for it no longer needs the fallback.
+     */
+    void onDismissStarted() {
+        if (mPending != null) {
+            mHandler.removeCallbacks(mPending);
+        }
+    }
+
+    /**
+     * Deliver the click waiting for the sheet to be dismissed, if any. Also called when the sheet
+     * leaves its window without being dismissed.
+     */
+    void onDismissed() {
+        Delivery pending = mPending;
+        mPending = null;
+        if (pending != null) {
+            pending.run();
+        }
+    }
+
+    private final class Delivery implements Runnable, MessageQueue.IdleHandler {
+
+        private final AtomicBoolean mDelivered = new AtomicBoolean();
+        private final Runnable mClick;
+
+        Delivery(Runnable click) {
+            mClick = click;
+        }
+
+        @Override
+        public void run() {
+            if (!mDelivered.compareAndSet(false, true)) {
+                return;
+            }
+            mHandler.removeCallbacks(this);
+            if (mPending == this) {
+                mPending = null;
+            }
+            if (mExecutor != null) {
+                mExecutor.execute(mClick);
+            } else {
+                mClick.run();
+            }
+        }
+
+        @Override
+        public boolean queueIdle() {
+            run();
+            return false;
+        }
+    }
+}
@@ -4,12 +4,20 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.VelocityTrackerCompat;
 import android.support.v4.view.ViewCompat;
-import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.animation.AnimationUtils;
 import android.widget.AbsListView;
 import android.widget.FrameLayout;
 
@@ -17,21 +25,58 @@ import android.widget.FrameLayout;
  * Project: gradle
  * Created by LiaoKai(soarcn) on 2014/11/25.
  */
-class ClosableSlidingLayout extends FrameLayout {
+class ClosableSlidingLayout extends FrameLayout implements NestedScrollingParent {
 
     private static final int INVALID_POINTER = -1;
+    private static final float STIFFNESS = 700f;
+    private static final float DAMPING_RATIO = 0.85f;
+    /** how long a released sheet is assumed to keep its velocity when picking an anchor */
+    private static final float PROJECTION = 0.15f;
+    /** how far ahead in seconds a predicted drag leads the last touch sample */
+    private static final float PREDICTION = 0.008f;
     private final float MINVEL;
     View mTarget;
     boolean swipeable = true;
-    private ViewDragHelper mDragHelper;
     private SlideListener  mListener;
-    private int            height;
-    private int            top;
-    private int            mActivePointerId;
+    private final int      mTouchSlop;
+    private final float    mMaxVelocity;
+    private final float    mMaxPrediction;
+    private VelocityTracker mVelocityTracker;
+    private int            mActivePointerId = INVALID_POINTER;
     private boolean        mIsBeingDragged;
     private float          mInitialMotionY;
+    private float          mLastMotionY;
+    /** where the finger has dragged the sheet, before prediction */
+    private float          mDragOffset;
+    private boolean        mPredictDrag;
     private boolean collapsible = false;
     private float yDiff;
+    private Runnable mAnimationEnd;
+    private Runnable mPendingEndAction;
+    private boolean mCancelling;
+    private int mAnimState;
+    private float mAnimFrom;
+    private float mAnimTo;
+    private long mAnimStart;
+    private long mAnimDuration;
+    private SpringInterpolator mAnimSpring;
+    private int mSheetHeight;
+    private boolean mFollowGrowth;
+    private int[] mAnchors = {BottomSheet.STATE_FULL};
+    private int mPeekHeight;
+    private int mState = BottomSheet.STATE_HIDDEN;
+    private int mSettledState = BottomSheet.STATE_HIDDEN;
+    private boolean mTrackSlide;
+    private boolean mUseLayers = true;
+    private Runnable mOnTouchDown;
+    private SheetFrameMonitor mFrameMonitor;
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper;
+    /** the current gesture started on a target that drives the sheet by nested scrolling */
+    private boolean mNestedTouch;
+    /** the current gesture started while the target could still scroll up */
+    private boolean mChildScrolled;
+    private boolean mNestedDragged;
+    private boolean mNestedExpanded;
 
     public ClosableSlidingLayout(Context context) {
         this(context, null);
@@ -44,33 +89,44 @@ class ClosableSlidingLayout extends FrameLayout {
     @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     public ClosableSlidingLayout(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        mDragHelper = ViewDragHelper.create(this, 0.8f, new ViewDragCallback());
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMaxVelocity = configuration.getScaledMaximumFlingVelocity();
         MINVEL = getResources().getDisplayMetrics().density * 400;
+        mMaxPrediction = getResources().getDisplayMetrics().density * 24;
+        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
     }
 
     @Override
     public boolean onInterceptTouchEvent(@NonNull MotionEvent event) {
         final int action = MotionEventCompat.getActionMasked(event);
 
-        if (!isEnabled() || canChildScrollUp()) {
-            // Fail fast if we're not in a state where a swipe is possible
+        if (!isEnabled()) {
             return false;
         }
-
-        if (action == MotionEvent.ACTION_CANCEL || action == MotionEvent.ACTION_UP) {
-            mActivePointerId = INVALID_POINTER;
-            mIsBeingDragged = false;
-            if (collapsible && -yDiff > mDragHelper.getTouchSlop()) {
-                expand(mDragHelper.getCapturedView(), 0);
+        if (action == MotionEvent.ACTION_DOWN) {
+            if (mOnTouchDown != null) {
+                mOnTouchDown.run();
+            }
+            if (isDismissing()) {
+                // the sheet is on its way out
+                return true;
             }
-            mDragHelper.cancel();
+            mNestedTouch = isNestedScrollTarget(event);
+            mChildScrolled = !mNestedTouch && canChildScrollUp();
+        }
+        if (mNestedTouch || mChildScrolled) {
+            // Fail fast if the target handles this gesture, nested scrolling moves the sheet
             return false;
         }
 
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                height = getChildAt(0).getHeight();
-                top = getChildAt(0).getTop();
                 mActivePointerId = MotionEventCompat.getPointerId(event, 0);
                 mIsBeingDragged = false;
                 final float initialMotionY = getMotionEventY(event, mActivePointerId);
@@ -78,6 +134,7 @@ class ClosableSlidingLayout extends FrameLayout {
                     return false;
                 }
                 mInitialMotionY = initialMotionY;
+                mLastMotionY = initialMotionY;
                 yDiff = 0;
                 break;
             case MotionEvent.ACTION_MOVE:
@@ -88,20 +145,104 @@ class ClosableSlidingLayout extends FrameLayout {
                 if (y == -1) {
                     return false;
                 }
-                yDiff = y - mInitialMotionY;
-                if (swipeable && yDiff > mDragHelper.getTouchSlop() && !mIsBeingDragged) {
-                    mIsBeingDragged = true;
-                    mDragHelper.captureChildView(getChildAt(0), 0);
-                }
+                startDragIfNeeded(y);
+                break;
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointer(event, action);
                 break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (collapsible && -yDiff > mTouchSlop) {
+                    expand(getChildAt(0), 0);
+                }
+                endGesture();
+                return false;
         }
-        mDragHelper.shouldInterceptTouchEvent(event);
         return mIsBeingDragged;
     }
 
-    @Override
-    public void requestDisallowInterceptTouchEvent(boolean b) {
-        // Nope.
+    /**
+     * Start dragging the sheet once the pointer at {@code y} moved past the touch slop, down
+     * or, for a sheet resting on a lower anchor, up.
+     */
+    private void startDragIfNeeded(float y) {
+        yDiff = y - mInitialMotionY;
+        if (mIsBeingDragged || !swipeable || isDismissing()) {
+            return;
+        }
+        View sheet = getChildAt(0);
+        if (yDiff > mTouchSlop || -yDiff > mTouchSlop && sheet.getTranslationY() > 0) {
+            mIsBeingDragged = true;
+            cancelAnimation();
+            setState(BottomSheet.STATE_DRAGGING);
+            beginPhase(BottomSheet.PHASE_DRAG);
+            mDragOffset = sheet.getTranslationY();
+            mLastMotionY = y;
+        }
+    }
+
+    /**
+     * Follow the active pointer. The position comes from the newest sample of the event, while
+     * the velocity tracker has been fed every batched historical sample in between, which keeps
+     * release velocity and prediction accurate when the panel samples faster than frames arrive.
+     */
+    private void dragTo(MotionEvent ev) {
+        final float y = getMotionEventY(ev, mActivePointerId);
+        if (y == -1) {
+            return;
+        }
+        View sheet = getChildAt(0);
+        float hidden = getAnchorOffset(sheet, BottomSheet.STATE_HIDDEN);
+        mDragOffset = Math.max(0, Math.min(hidden, mDragOffset + y - mLastMotionY));
+        mLastMotionY = y;
+
+        float offset = mDragOffset;
+        if (mPredictDrag) {
+            // lead the finger by the distance it covers until the frame is shown
+            mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+            float lead = VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId)
+                    * PREDICTION;
+            lead = Math.max(-mMaxPrediction, Math.min(mMaxPrediction, lead));
+            offset = Math.max(0, Math.min(hidden, mDragOffset + lead));
+        }
+        sheet.setTranslationY(offset);
+        dispatchSlide(sheet, offset);
+    }
+
+    /**
+     * Keep dragging with a remaining pointer when one goes down or up, without a jump.
+     */
+    private void onSecondaryPointer(MotionEvent ev, int action) {
+        final int index = MotionEventCompat.getActionIndex(ev);
+        if (action == MotionEventCompat.ACTION_POINTER_DOWN) {
+            mActivePointerId = MotionEventCompat.getPointerId(ev, index);
+            mLastMotionY = MotionEventCompat.getY(ev, index);
+        } else if (MotionEventCompat.getPointerId(ev, index) == mActivePointerId) {
+            final int newIndex = index == 0 ? 1 : 0;
+            mActivePointerId = MotionEventCompat.getPointerId(ev, newIndex);
+            mLastMotionY = MotionEventCompat.getY(ev, newIndex);
+        }
+        // where the gesture started no longer matches the active pointer
+        mInitialMotionY = mLastMotionY - yDiff;
+    }
+
+    /**
+     * Settle a dragged sheet with the velocity of the active pointer.
+     */
+    private void release() {
+        mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+        float velocity = VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId);
+        settle(getChildAt(0), velocity);
+    }
+
+    private void endGesture() {
+        mActivePointerId = INVALID_POINTER;
+        mIsBeingDragged = false;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
     }
 
     /**
@@ -123,6 +264,31 @@ class ClosableSlidingLayout extends FrameLayout {
         }
     }
 
+    /**
+     * @return whether the gesture starts on {@link #mTarget} and the target reports its scrolling
+     * to this layout
+     */
+    private boolean isNestedScrollTarget(MotionEvent ev) {
+        if (mTarget == null || !ViewCompat.isNestedScrollingEnabled(mTarget)) {
+            return false;
+        }
+        float x = ev.getX();
+        float y = ev.getY();
+        View view = mTarget;
+        while (view != this) {
+            x -= view.getLeft() + view.getTranslationX();
+            y -= view.getTop() + view.getTranslationY();
+            ViewParent parent = view.getParent();
+            if (!(parent instanceof View)) {
+                return false;
+            }
+            view = (View) parent;
+            x += view.getScrollX();
+            y += view.getScrollY();
+        }
+        return x >= 0 && y >= 0 && x < mTarget.getWidth() && y < mTarget.getHeight();
+    }
+
     private float getMotionEventY(MotionEvent ev, int activePointerId) {
         final int index = MotionEventCompat.findPointerIndex(ev, activePointerId);
         if (index < 0) {
@@ -133,96 +299,578 @@ class ClosableSlidingLayout extends FrameLayout {
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (!isEnabled() || canChildScrollUp()) {
+        if (!isEnabled() || mChildScrolled) {
             return super.onTouchEvent(ev);
         }
+        if (isDismissing()) {
+            return true;
+        }
 
-        try {
-            if (swipeable) {
-                mDragHelper.processTouchEvent(ev);
-            }
-        } catch (Exception ignored) {
+        if (!swipeable) {
+            return true;
+        }
+
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(ev);
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);
+                mInitialMotionY = MotionEventCompat.getY(ev, 0);
+                mLastMotionY = mInitialMotionY;
+                yDiff = 0;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                final float y = getMotionEventY(ev, mActivePointerId);
+                if (y == -1) {
+                    break;
+                }
+                if (!mIsBeingDragged) {
+                    startDragIfNeeded(y);
+                }
+                if (mIsBeingDragged) {
+                    dragTo(ev);
+                }
+                break;
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointer(ev, action);
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mIsBeingDragged) {
+                    release();
+                }
+                endGesture();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                if (mIsBeingDragged) {
+                    settle(getChildAt(0), 0);
+                }
+                endGesture();
+                break;
         }
         return true;
     }
 
     @Override
-    public void computeScroll() {
-        if (mDragHelper.continueSettling(true)) {
-            ViewCompat.postInvalidateOnAnimation(this);
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        View sheet = getChildAt(0);
+        if (sheet == null) {
+            return;
+        }
+        int grown = sheet.getHeight() - mSheetHeight;
+        mSheetHeight = sheet.getHeight();
+        if (mFollowGrowth && grown != 0 && !mIsBeingDragged && !mNestedDragged
+                && !isDismissing()) {
+            // start from where the old top edge was on screen and slide up to the new one
+            float offset = (mAnimationEnd != null ? getAnimatedOffset() : sheet.getTranslationY())
+                    + grown;
+            cancelAnimation();
+            sheet.setTranslationY(Math.max(0, offset));
+            mSettledState = BottomSheet.STATE_FULL;
+            animateSheet(sheet, BottomSheet.STATE_FULL, 0, null);
+        } else if (mAnimationEnd == null
+                && (mState == BottomSheet.STATE_PEEK || mState == BottomSheet.STATE_HALF)) {
+            // the sheet may have changed height, keep it on its anchor
+            sheet.setTranslationY(getAnchorOffset(sheet, mState));
+        }
+    }
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return swipeable && !isDismissing()
+                && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        mNestedDragged = false;
+        mNestedExpanded = false;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        View sheet = getChildAt(0);
+        if (dy > 0 && sheet.getTranslationY() > 0) {
+            // pull a sheet resting on a lower anchor up before the target scrolls
+            consumed[1] = (int) Math.min(dy, Math.ceil(sheet.getTranslationY()));
+            moveSheet(sheet, -consumed[1]);
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed,
+            int dyUnconsumed) {
+        if (dyUnconsumed < 0) {
+            // the target is at its top, the rest of the gesture drags the sheet down
+            moveSheet(getChildAt(0), -dyUnconsumed);
+        } else if (dyUnconsumed > 0 && collapsible && !mNestedExpanded) {
+            mNestedExpanded = true;
+            expand(target, 0);
         }
     }
 
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        View sheet = getChildAt(0);
+        if (!mNestedDragged || sheet.getTranslationY() <= 0) {
+            return false;
+        }
+        mNestedDragged = false;
+        settle(sheet, -velocityY);
+        return true;
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return false;
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        if (mNestedDragged) {
+            mNestedDragged = false;
+            settle(getChildAt(0), 0);
+        }
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    /**
+     * Move the sheet by {@code dy} for a nested scroll, between fully open and hidden.
+     */
+    private void moveSheet(View sheet, float dy) {
+        if (isDismissing()) {
+            return;
+        }
+        if (!mNestedDragged) {
+            mNestedDragged = true;
+            cancelAnimation();
+            setState(BottomSheet.STATE_DRAGGING);
+            beginPhase(BottomSheet.PHASE_DRAG);
+        }
+        float offset = Math.max(0, Math.min(getAnchorOffset(sheet, BottomSheet.STATE_HIDDEN),
+                sheet.getTranslationY() + dy));
+        sheet.setTranslationY(offset);
+        dispatchSlide(sheet, offset);
+    }
+
     void setSlideListener(SlideListener listener) {
         mListener = listener;
     }
 
+    /**
+     * Only dispatch {@link SlideListener#onSlide(float)} when someone listens, it costs a
+     * callback per frame.
+     */
+    void setSlideTracking(boolean track) {
+        mTrackSlide = track;
+    }
+
+    /**
+     * Lead the finger by a frame's worth of its velocity while dragging.
+     */
+    void setDragPrediction(boolean predict) {
+        mPredictDrag = predict;
+    }
+
+    /**
+     * Whether the sheet is put on a hardware layer while it animates, which costs memory.
+     */
+    void setUseLayers(boolean useLayers) {
+        mUseLayers = useLayers;
+    }
+
+    /**
+     * @param action run whenever a gesture starts anywhere on the layout
+     */
+    void setOnTouchDown(@Nullable Runnable action) {
+        mOnTouchDown = action;
+    }
+
+    /**
+     * @param monitor records the frames of each open, drag, settle, expand and dismiss
+     */
+    void setFrameMonitor(@Nullable SheetFrameMonitor monitor) {
+        mFrameMonitor = monitor;
+    }
+
+    private void beginPhase(int phase) {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.begin(phase);
+        }
+    }
+
+    private void endPhase() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.end();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        endPhase();
+    }
+
     void setCollapsible(boolean collapsible) {
         this.collapsible = collapsible;
     }
 
+    /**
+     * @param anchors    the states the sheet may rest in, the first one is where it opens
+     * @param peekHeight visible height of the sheet in {@link BottomSheet#STATE_PEEK}
+     */
+    void setAnchors(int[] anchors, int peekHeight) {
+        mAnchors = anchors;
+        mPeekHeight = peekHeight;
+    }
+
+    int getState() {
+        return mState;
+    }
+
+    private void setState(int state) {
+        if (mState == state) {
+            return;
+        }
+        mState = state;
+        if (mListener != null) {
+            mListener.onStateChanged(state);
+        }
+    }
+
     private void expand(View releasedChild, float yvel) {
         if (mListener != null) {
             mListener.onOpened();
         }
     }
 
+    /**
+     * Move a released sheet to the anchor picked for {@code velocity}, or dismiss it.
+     */
+    private void settle(View sheet, float velocity) {
+        int target = findTarget(sheet, getOffset(sheet), velocity);
+        if (target == BottomSheet.STATE_HIDDEN) {
+            dismiss(sheet, velocity);
+        } else {
+            animateSheet(sheet, target, velocity, null);
+        }
+    }
+
     private void dismiss(View view, float yvel) {
-        mDragHelper.smoothSlideViewTo(view, 0, top + height);
-        ViewCompat.postInvalidateOnAnimation(ClosableSlidingLayout.this);
+        animateSheet(view, BottomSheet.STATE_HIDDEN, yvel, new Runnable() {
+            @Override
+            public void run() {
+                if (mListener != null) {
+                    mListener.onClosed();
+                }
+            }
+        });
     }
 
     /**
-     * set listener
+     * Slide the sheet in from the bottom edge to its first anchor once it has been laid out.
      */
-    interface SlideListener {
+    void animateOpen() {
+        final View sheet = getChildAt(0);
+        mState = BottomSheet.STATE_HIDDEN;
+        mSettledState = BottomSheet.STATE_HIDDEN;
+        getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                getViewTreeObserver().removeOnPreDrawListener(this);
+                sheet.setTranslationY(getAnchorOffset(sheet, BottomSheet.STATE_HIDDEN));
+                animateSheet(sheet, mAnchors[0], 0, null);
+                return true;
+            }
+        });
+    }
 
-        void onClosed();
+    /**
+     * Animate the next changes of the sheet height with a translation, so the sheet slides to its
+     * new size instead of jumping to it. Ends with the animation that follows the last change.
+     */
+    void animateGrowth() {
+        if (getChildAt(0) == null || isDismissing()) {
+            return;
+        }
+        mFollowGrowth = true;
+        beginPhase(BottomSheet.PHASE_EXPAND);
+        getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                getViewTreeObserver().removeOnPreDrawListener(this);
+                if (mFollowGrowth && mAnimationEnd == null) {
+                    // laid out without changing height, there is nothing to animate
+                    mFollowGrowth = false;
+                    endPhase();
+                }
+                return true;
+            }
+        });
+    }
 
-        void onOpened();
+    /**
+     * Slide the sheet out of the bottom edge, then run {@code endAction}.
+     */
+    void animateDismiss(@NonNull Runnable endAction) {
+        View sheet = getChildAt(0);
+        if (isDismissing()) {
+            // already on its way out, run the action along with the running one
+            animateSheet(sheet, BottomSheet.STATE_HIDDEN, 0, endAction);
+            return;
+        }
+        if (sheet == null || sheet.getTop() + sheet.getTranslationY() >= getHeight()) {
+            cancelAnimation();
+            setState(BottomSheet.STATE_HIDDEN);
+            endAction.run();
+            return;
+        }
+        animateSheet(sheet, BottomSheet.STATE_HIDDEN, 0, endAction);
     }
 
     /**
-     * Callback
+     * @return how far the sheet is moved down from its laid out position
      */
-    private class ViewDragCallback extends ViewDragHelper.Callback {
+    private float getOffset(View sheet) {
+        return sheet.getTranslationY();
+    }
 
+    /**
+     * @return the offset of {@code state} below the laid out position of the sheet
+     */
+    private float getAnchorOffset(View sheet, int state) {
+        switch (state) {
+            case BottomSheet.STATE_HALF:
+                int half = getResources().getDisplayMetrics().heightPixels / 2;
+                return Math.max(0, sheet.getHeight() - half);
+            case BottomSheet.STATE_PEEK:
+                return Math.max(0, sheet.getHeight() - mPeekHeight);
+            case BottomSheet.STATE_HIDDEN:
+                return getHeight() - sheet.getTop();
+            default:
+                return 0;
+        }
+    }
 
-        @Override
-        public boolean tryCaptureView(View child, int pointerId) {
-            return true;
+    /**
+     * Pick the anchor closest to where the sheet would coast to with {@code velocity}. A fling
+     * always moves on to an anchor in its direction when there is one.
+     */
+    private int findTarget(View sheet, float offset, float velocity) {
+        float projected = offset + velocity * PROJECTION;
+        int target = -1;
+        if (Math.abs(velocity) > MINVEL) {
+            target = findNearest(sheet, offset, projected, velocity);
         }
+        return target != -1 ? target : findNearest(sheet, offset, projected, 0);
+    }
 
-        @Override
-        public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            if (yvel > MINVEL) {
-                dismiss(releasedChild, yvel);
-            } else {
-                if (releasedChild.getTop() >= top + height / 2) {
-                    dismiss(releasedChild, yvel);
-                } else {
-                    mDragHelper.smoothSlideViewTo(releasedChild, 0, top);
-                    ViewCompat.postInvalidateOnAnimation(ClosableSlidingLayout.this);
-                }
+    private int findNearest(View sheet, float offset, float projected, float direction) {
+        int target = -1;
+        float best = Float.MAX_VALUE;
+        for (int i = -1; i < mAnchors.length; i++) {
+            int state = i < 0 ? BottomSheet.STATE_HIDDEN : mAnchors[i];
+            float anchor = getAnchorOffset(sheet, state);
+            if (direction != 0 && (anchor - offset) * direction <= 0) {
+                continue;
+            }
+            float distance = Math.abs(anchor - projected);
+            if (distance < best) {
+                best = distance;
+                target = state;
             }
         }
+        return target;
+    }
 
-        @Override
-        public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-                invalidate();
+    /**
+     * Move the sheet to the anchor of {@code state} with a spring that starts at
+     * {@code velocity}. The animation only changes translationY of a view on a hardware
+     * layer, so each frame recomposites the layer instead of redrawing the sheet. It is started
+     * without listeners or actions, which lets the platform hand it to the RenderThread where
+     * supported so it keeps running while the main thread is busy; the end is picked up by a
+     * callback posted for the same duration.
+     * <p>
+     * A running dismiss is never interrupted, as its end action takes the sheet down: requests
+     * for another anchor are ignored and further end actions run after it.
+     */
+    private void animateSheet(final View sheet, final int state, float velocity,
+            @Nullable final Runnable endAction) {
+        if (isDismissing()) {
+            if (state == BottomSheet.STATE_HIDDEN && endAction != null) {
+                final Runnable first = mPendingEndAction;
+                mPendingEndAction = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (first != null) {
+                            first.run();
+                        }
+                        endAction.run();
+                    }
+                };
             }
-            if (height - top < 1 && mListener != null) {
-                mDragHelper.cancel();
-                mListener.onClosed();
-                mDragHelper.smoothSlideViewTo(changedView, 0, top);
+            return;
+        }
+        cancelAnimation();
+        if (state == BottomSheet.STATE_HIDDEN) {
+            // the sheet is leaving, a height change must not send it back up
+            mFollowGrowth = false;
+            beginPhase(BottomSheet.PHASE_DISMISS);
+        } else if (mFollowGrowth) {
+            beginPhase(BottomSheet.PHASE_EXPAND);
+        } else if (mState == BottomSheet.STATE_HIDDEN) {
+            beginPhase(BottomSheet.PHASE_OPEN);
+        } else {
+            beginPhase(BottomSheet.PHASE_SETTLE);
+        }
+
+        final float from = sheet.getTranslationY();
+        final float to = getAnchorOffset(sheet, state);
+        final SpringInterpolator spring = new SpringInterpolator(STIFFNESS,
+                state == BottomSheet.STATE_HIDDEN ? 1 : DAMPING_RATIO, to - from, velocity);
+        final long duration = spring.getDuration();
+        mAnimFrom = from;
+        mAnimTo = to;
+        mAnimSpring = spring;
+        mAnimStart = AnimationUtils.currentAnimationTimeMillis();
+        mAnimDuration = duration;
+        mAnimState = state;
+        setState(BottomSheet.STATE_SETTLING);
+
+        final boolean ownLayer = mUseLayers
+                && ViewCompat.getLayerType(sheet) == ViewCompat.LAYER_TYPE_NONE;
+        if (ownLayer) {
+            ViewCompat.setLayerType(sheet, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        }
+        mPendingEndAction = endAction;
+        mAnimationEnd = new Runnable() {
+            @Override
+            public void run() {
+                mAnimationEnd = null;
+                mAnimSpring = null;
+                if (ownLayer) {
+                    ViewCompat.setLayerType(sheet, ViewCompat.LAYER_TYPE_NONE, null);
+                }
+                Runnable action = mPendingEndAction;
+                mPendingEndAction = null;
+                if (mCancelling) {
+                    return;
+                }
+                mFollowGrowth = false;
+                endPhase();
+                int previous = mSettledState;
+                mSettledState = state;
+                dispatchSlide(sheet, to);
+                setState(state);
+                if (collapsible && state == BottomSheet.STATE_FULL
+                        && (previous == BottomSheet.STATE_PEEK
+                        || previous == BottomSheet.STATE_HALF)) {
+                    expand(sheet, 0);
+                }
+                if (action != null) {
+                    action.run();
+                }
             }
+        };
+        sheet.animate().translationY(to).setDuration(duration).setInterpolator(spring)
+                .setStartDelay(0).start();
+        ViewCompat.postOnAnimationDelayed(this, mAnimationEnd, duration);
+
+        if (mTrackSlide) {
+            final Runnable end = mAnimationEnd;
+            ViewCompat.postOnAnimation(this, new Runnable() {
+                @Override
+                public void run() {
+                    if (mAnimationEnd != end) {
+                        return;
+                    }
+                    dispatchSlide(sheet, getAnimatedOffset());
+                    ViewCompat.postOnAnimation(ClosableSlidingLayout.this, this);
+                }
+            });
         }
+    }
 
-        @Override
-        public int clampViewPositionVertical(View child, int top, int dy) {
-            return Math.max(top, ClosableSlidingLayout.this.top);
+    /**
+     * @return the offset of the running animation, computed from the spring rather than read back
+     * from the view, which a RenderThread animation does not update every frame
+     */
+    private float getAnimatedOffset() {
+        if (mAnimSpring == null) {
+            View sheet = getChildAt(0);
+            return sheet == null ? 0 : sheet.getTranslationY();
         }
+        long elapsed = AnimationUtils.currentAnimationTimeMillis() - mAnimStart;
+        float fraction = Math.min(1, elapsed / (float) mAnimDuration);
+        return mAnimFrom + (mAnimTo - mAnimFrom) * mAnimSpring.getInterpolation(fraction);
+    }
+
+    /**
+     * Report how much of the sheet is shown, 1 when it is fully open and 0 when it is hidden.
+     */
+    private void dispatchSlide(View sheet, float offset) {
+        if (!mTrackSlide || mListener == null) {
+            return;
+        }
+        float hidden = getAnchorOffset(sheet, BottomSheet.STATE_HIDDEN);
+        float shown = hidden <= 0 ? 0 : 1 - offset / hidden;
+        mListener.onSlide(Math.max(0, Math.min(1, shown)));
+    }
+
+    /**
+     * @return whether the sheet is sliding out to be dismissed
+     */
+    private boolean isDismissing() {
+        return mAnimationEnd != null && mAnimState == BottomSheet.STATE_HIDDEN;
+    }
+
+    /**
+     * Stop a running sheet animation where it is. Only dismiss animations have an end action and
+     * they are never cancelled, see {@link #animateSheet}.
+     */
+    private void cancelAnimation() {
+        if (isDismissing()) {
+            return;
+        }
+        View sheet = getChildAt(0);
+        if (sheet != null) {
+            sheet.animate().cancel();
+        }
+        if (mAnimationEnd != null) {
+            removeCallbacks(mAnimationEnd);
+            mPendingEndAction = null;
+            mCancelling = true;
+            mAnimationEnd.run();
+            mCancelling = false;
+        }
+    }
+
+    /**
+     * set listener
+     */
+    interface SlideListener {
+
+        void onClosed();
+
+        void onOpened();
+
+        void onStateChanged(int state);
+
+        /**
+         * @param fraction how much of the sheet is shown, from 0 to 1
+         */
+        void onSlide(float fraction);
     }
 
 }
\ No newline at end of file
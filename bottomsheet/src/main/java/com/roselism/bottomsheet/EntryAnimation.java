@@ -0,0 +1,110 @@
+package com.roselism.bottomsheet;
+
+import android.os.Build;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.animation.AnimationUtils;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.widget.AbsListView;
+
+/**
+ * Staggered entry of the rows of a sheet. Only rows that are on screen when the sheet opens are
+ * animated, and the delay between rows shrinks with their number so the whole entry never takes
+ * longer than {@link #MAX_DURATION}.
+ */
+final class EntryAnimation {
+
+    private static final int ROW_DURATION = 250;
+    private static final int MAX_STAGGER = 30;
+    private static final int MAX_DURATION = 400;
+    /** rows start this many row heights below their place, like bs_list_item_in */
+    private static final int FROM_ROWS = 6;
+
+    private final AbsListView mList;
+    private final Interpolator mInterpolator;
+    private ViewTreeObserver.OnPreDrawListener mPending;
+    private int mAnimated;
+
+    EntryAnimation(AbsListView list) {
+        mList = list;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mInterpolator = AnimationUtils.loadInterpolator(list.getContext(),
+                    android.R.interpolator.fast_out_slow_in);
+        } else {
+            mInterpolator = new DecelerateInterpolator();
+        }
+    }
+
+    /**
+     * Animate the rows in once the list has been laid out.
+     */
+    void start() {
+        cancel();
+        mPending = new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                mList.getViewTreeObserver().removeOnPreDrawListener(this);
+                mPending = null;
+                run();
+                return true;
+            }
+        };
+        mList.getViewTreeObserver().addOnPreDrawListener(mPending);
+    }
+
+    private void run() {
+        int visibleHeight = mList.getRootView().getHeight() - getLayoutTopInWindow();
+        int count = 0;
+        while (count < mList.getChildCount() && mList.getChildAt(count).getTop() < visibleHeight) {
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        int stagger = count > 1
+                ? Math.min(MAX_STAGGER, (MAX_DURATION - ROW_DURATION) / (count - 1)) : 0;
+        for (int i = 0; i < count; i++) {
+            View child = mList.getChildAt(i);
+            child.setTranslationY(Math.min(child.getHeight() * FROM_ROWS, mList.getHeight()));
+            child.animate().translationY(0).setStartDelay(i * stagger).setDuration(ROW_DURATION)
+                    .setInterpolator(mInterpolator).start();
+        }
+        mAnimated = count;
+    }
+
+    /**
+     * @return the top of the list in its window from layout alone, the sheet may still be
+     * translated off screen when this runs
+     */
+    private int getLayoutTopInWindow() {
+        int top = mList.getTop();
+        ViewParent parent = mList.getParent();
+        while (parent instanceof View) {
+            top += ((View) parent).getTop();
+            parent = parent.getParent();
+        }
+        return top;
+    }
+
+    /**
+     * Put every row in its place right away.
+     */
+    void cancel() {
+        if (mPending != null) {
+            mList.getViewTreeObserver().removeOnPreDrawListener(mPending);
+            mPending = null;
+        }
+        if (mAnimated == 0) {
+            return;
+        }
+        // rows may have been recycled into other positions since
+        for (int i = 0; i < mList.getChildCount(); i++) {
+            View child = mList.getChildAt(i);
+            child.animate().cancel();
+            child.setTranslationY(0);
+        }
+        mAnimated = 0;
+    }
+}
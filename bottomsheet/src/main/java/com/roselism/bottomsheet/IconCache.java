@@ -0,0 +1,50 @@
+package com.roselism.bottomsheet;
+
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.graphics.drawable.Drawable;
+import android.support.v4.util.LruCache;
+
+/**
+ * Keeps the icons that {@link ActionMenu#addIntentOptions} loads from the package manager, so
+ * showing the same sheet again does not load every activity icon again. Only the constant state
+ * is kept, each item gets its own drawable.
+ */
+final class IconCache {
+
+    static final int DEFAULT_SIZE = 64;
+    static final int LOW_END_SIZE = 16;
+
+    private static final LruCache<String, Drawable.ConstantState> sCache =
+            new LruCache<>(DEFAULT_SIZE);
+    private static int sLimit = DEFAULT_SIZE;
+
+    private IconCache() {
+    }
+
+    /**
+     * @param limit the number of icons kept, at most {@link #DEFAULT_SIZE}
+     */
+    static synchronized void setLimit(int limit) {
+        sLimit = Math.min(limit, DEFAULT_SIZE);
+        sCache.trimToSize(sLimit);
+    }
+
+    static synchronized Drawable load(ResolveInfo info, PackageManager pm) {
+        String key = info.activityInfo.packageName + '/' + info.activityInfo.name + '#'
+                + info.getIconResource();
+        Drawable.ConstantState state = sCache.get(key);
+        if (state != null) {
+            SheetStats.increment(SheetStats.ICON_CACHE_HITS);
+            return state.newDrawable();
+        }
+        SheetStats.increment(SheetStats.ICON_CACHE_MISSES);
+        Drawable icon = info.loadIcon(pm);
+        state = icon.getConstantState();
+        if (state != null) {
+            sCache.put(key, state);
+            sCache.trimToSize(sLimit);
+        }
+        return icon;
+    }
+}
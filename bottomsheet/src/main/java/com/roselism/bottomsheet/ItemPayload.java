@@ -0,0 +1,63 @@
+package com.roselism.bottomsheet;
+
+import android.support.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Title, content and type of a sheet item, which the builder packs into the menu item title as
+ * json. Items inflated from a menu resource carry a plain title and decode as
+ * {@link BottomSheet#NORMAL}.
+ */
+final class ItemPayload {
+
+    private static final String KEY_TITLE   = "title";
+    private static final String KEY_CONTENT = "mContent";
+    private static final String KEY_TYPE    = "type";
+
+    /**
+     * The raw title this payload was decoded from.
+     */
+    final CharSequence source;
+    final CharSequence title;
+    final String       content;
+    final int          type;
+
+    private ItemPayload(CharSequence source, CharSequence title, String content, int type) {
+        this.source = source;
+        this.title = title;
+        this.content = content;
+        this.type = type;
+    }
+
+    static String encode(CharSequence title, @Nullable String content, int type) {
+        JSONObject jsonWriter = new JSONObject();
+        try {
+            jsonWriter.put(KEY_TITLE, title);
+            jsonWriter.put(KEY_CONTENT, content == null ? "" : content);
+            jsonWriter.put(KEY_TYPE, type);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return jsonWriter.toString();
+    }
+
+    static ItemPayload decode(@Nullable CharSequence source) {
+        if (source == null) {
+            return new ItemPayload(null, null, "", BottomSheet.NORMAL);
+        }
+        String raw = source.toString();
+        if (!raw.startsWith("{")) {
+            return new ItemPayload(source, source, "", BottomSheet.NORMAL);
+        }
+        try {
+            JSONObject jsonObject = new JSONObject(raw);
+            return new ItemPayload(source, jsonObject.optString(KEY_TITLE, raw),
+                    jsonObject.optString(KEY_CONTENT, ""),
+                    jsonObject.optInt(KEY_TYPE, BottomSheet.NORMAL));
+        } catch (JSONException e) {
+            return new ItemPayload(source, source, "", BottomSheet.NORMAL);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.roselism.bottomsheet;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Creates and binds the row of one item type in a {@link BottomSheet}.
+ * <p/>
+ * Register an implementation with {@link BottomSheet.Builder#renderer(int, ItemRenderer)} and add
+ * items of that type with {@link BottomSheet.Builder#sheet(int, CharSequence, int)}. Every
+ * registered renderer gets its own adapter view type, so recycled rows are only ever handed back
+ * to the renderer that created them. {@link BottomSheet#ONE}, {@link BottomSheet#TWO} and
+ * {@link BottomSheet#NORMAL} are served by built-in renderers which may be replaced the same way.
+ */
+public interface ItemRenderer {
+
+    /**
+     * Inflate a new row. Resolve child views here and keep them in a holder (e.g. the view tag),
+     * {@link #onBindView} is called far more often than this.
+     */
+    @NonNull
+    View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup parent);
+
+    /**
+     * Show {@code item} in a row previously created by {@link #onCreateView}.
+     * Use {@link BottomSheet#getItemTitle(MenuItem)} and
+     * {@link BottomSheet#getItemContent(MenuItem)} to read the item's text.
+     *
+     * @param position position of the item in the sheet
+     * @param count    number of items currently shown by the sheet
+     */
+    void onBindView(@NonNull View view, @NonNull MenuItem item, int position, int count);
+
+    /**
+     * @return a key shared by renderers whose rows are interchangeable, or null to give this
+     * renderer a view type of its own
+     */
+    @Nullable
+    Object getViewTypeKey();
+}
@@ -0,0 +1,76 @@
+package com.roselism.bottomsheet;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+
+/**
+ * Maps item types to {@link ItemRenderer}s and hands out one adapter view type per renderer
+ * (or per shared {@link ItemRenderer#getViewTypeKey() view type key}).
+ */
+class ItemRendererRegistry {
+
+    private final SparseArray<ItemRenderer> mRenderers       = new SparseArray<>();
+    private final SparseIntArray            mItemToViewType  = new SparseIntArray();
+    private final ArrayList<ItemRenderer>   mViewTypeToRenderer = new ArrayList<>();
+    private final int mFallbackType;
+
+    ItemRendererRegistry(int fallbackType) {
+        mFallbackType = fallbackType;
+    }
+
+    void register(int itemType, ItemRenderer renderer) {
+        if (!mViewTypeToRenderer.isEmpty()) {
+            throw new IllegalStateException("Renderers must be registered before first use");
+        }
+        mRenderers.put(itemType, renderer);
+    }
+
+    void registerAll(SparseArray<ItemRenderer> renderers) {
+        for (int i = 0; i < renderers.size(); i++) {
+            register(renderers.keyAt(i), renderers.valueAt(i));
+        }
+    }
+
+    private void assignViewTypes() {
+        ArrayList<Object> keys = new ArrayList<>();
+        for (int i = 0; i < mRenderers.size(); i++) {
+            ItemRenderer renderer = mRenderers.valueAt(i);
+            Object key = renderer.getViewTypeKey();
+            int viewType = mViewTypeToRenderer.indexOf(renderer);
+            if (viewType < 0 && key != null) {
+                viewType = keys.indexOf(key);
+            }
+            if (viewType < 0) {
+                viewType = mViewTypeToRenderer.size();
+                mViewTypeToRenderer.add(renderer);
+                keys.add(key);
+            }
+            mItemToViewType.put(mRenderers.keyAt(i), viewType);
+        }
+    }
+
+    int getViewTypeCount() {
+        if (mViewTypeToRenderer.isEmpty()) {
+            assignViewTypes();
+        }
+        return Math.max(1, mViewTypeToRenderer.size());
+    }
+
+    int getViewType(int itemType) {
+        if (mViewTypeToRenderer.isEmpty()) {
+            assignViewTypes();
+        }
+        int viewType = mItemToViewType.get(itemType, -1);
+        return viewType >= 0 ? viewType : mItemToViewType.get(mFallbackType);
+    }
+
+    /**
+     * @return the renderer registered for {@code itemType}, or the one of the fallback type
+     */
+    ItemRenderer getRendererForType(int itemType) {
+        ItemRenderer renderer = mRenderers.get(itemType);
+        return renderer != null ? renderer : mRenderers.get(mFallbackType);
+    }
+}
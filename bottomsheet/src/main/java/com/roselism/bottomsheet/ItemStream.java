@@ -0,0 +1,109 @@
+package com.roselism.bottomsheet;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The sink handed to an {@link BottomSheet.ItemProvider}. Items may be added from any thread;
+ * they are created on that thread and handed to the receiver on the main thread, in batches of
+ * whatever arrived since the last delivery, so a burst of items costs a single adapter update.
+ */
+final class ItemStream implements BottomSheet.ItemSink {
+
+    /**
+     * Receives the items on the main thread.
+     */
+    interface Receiver {
+
+        /**
+         * @param finished whether the provider is done and no more items will follow
+         */
+        void onItems(List<ActionMenuItem> items, boolean finished);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Context mContext;
+    private final Receiver mReceiver;
+    private final ArrayList<ActionMenuItem> mPending = new ArrayList<>();
+    private boolean mFinished;
+    private boolean mPosted;
+    private volatile boolean mCancelled;
+
+    private final Runnable mDeliver = new Runnable() {
+        @Override
+        public void run() {
+            ArrayList<ActionMenuItem> items;
+            boolean finished;
+            synchronized (mPending) {
+                items = new ArrayList<>(mPending);
+                mPending.clear();
+                finished = mFinished;
+                mPosted = false;
+            }
+            if (!mCancelled) {
+                mReceiver.onItems(items, finished);
+            }
+        }
+    };
+
+    ItemStream(Context context, Receiver receiver) {
+        mContext = context;
+        mReceiver = receiver;
+    }
+
+    @Override
+    public void addItem(int id, @NonNull CharSequence title, @Nullable String content,
+            @Nullable Drawable icon) {
+        if (mCancelled) {
+            return;
+        }
+        ActionMenuItem item = new ActionMenuItem(mContext, 0, id, 0, 0,
+                ItemPayload.encode(title, content,
+                        content == null ? BottomSheet.NORMAL : BottomSheet.TWO));
+        item.setIcon(icon);
+        // decode here, not while binding the row
+        item.getPayload();
+        synchronized (mPending) {
+            if (mFinished) {
+                throw new IllegalStateException("Items added after finish()");
+            }
+            mPending.add(item);
+            post();
+        }
+    }
+
+    @Override
+    public void finish() {
+        synchronized (mPending) {
+            mFinished = true;
+            post();
+        }
+    }
+
+    private void post() {
+        if (!mPosted) {
+            mPosted = true;
+            mHandler.post(mDeliver);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Drop pending items and ignore any further ones. Must be called on the main thread.
+     */
+    void cancel() {
+        mCancelled = true;
+        mHandler.removeCallbacks(mDeliver);
+    }
+}
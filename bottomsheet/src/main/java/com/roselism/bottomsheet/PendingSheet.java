@@ -0,0 +1,89 @@
+package com.roselism.bottomsheet;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+/**
+ * A sheet being built by {@link BottomSheet.Builder#buildAsync}. Its data is prepared on the
+ * executor, then the sheet is created on the main thread and handed to the listener. If preparing
+ * fails the sheet is still created and handed over, as if it had been built synchronously.
+ */
+public final class PendingSheet {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final BottomSheet.Builder mBuilder;
+    private final BottomSheet.OnSheetReadyListener mListener;
+    private volatile boolean mCancelled;
+    private BottomSheet mSheet;
+
+    PendingSheet(BottomSheet.Builder builder, BottomSheet.OnSheetReadyListener listener) {
+        mBuilder = builder;
+        mListener = listener;
+    }
+
+    /**
+     * Run on the executor.
+     */
+    void prepare() {
+        if (mCancelled) {
+            return;
+        }
+        try {
+            mBuilder.prepare();
+        } catch (RuntimeException e) {
+            // all of it is optional, what was not done is done again by build() on the main
+            // thread, where a real problem throws just like with a synchronous build
+        }
+        deliver();
+    }
+
+    /**
+     * Build the sheet on the main thread and hand it to the listener, unless cancelled.
+     */
+    void deliver() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCancelled) {
+                    return;
+                }
+                mSheet = mBuilder.build();
+                mListener.onSheetReady(mSheet);
+            }
+        });
+    }
+
+    /**
+     * Stop the build if the sheet was not handed to the listener yet. Must be called on the main
+     * thread.
+     *
+     * @return whether the listener will not be called
+     */
+    public boolean cancel() {
+        if (mSheet != null) {
+            return false;
+        }
+        mCancelled = true;
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return whether the sheet was built and handed to the listener
+     */
+    public boolean isDone() {
+        return mSheet != null;
+    }
+
+    /**
+     * @return the built sheet, or null until it is handed to the listener
+     */
+    @Nullable
+    public BottomSheet getSheet() {
+        return mSheet;
+    }
+}
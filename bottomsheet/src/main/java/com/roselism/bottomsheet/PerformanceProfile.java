@@ -0,0 +1,43 @@
+package com.roselism.bottomsheet;
+
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.provider.Settings;
+import android.support.v4.app.ActivityManagerCompat;
+
+/**
+ * Resolves the performance profile of a sheet.
+ */
+final class PerformanceProfile {
+
+    private PerformanceProfile() {
+    }
+
+    /**
+     * @param profile one of the {@code PROFILE_} constants of {@link BottomSheet}
+     * @return whether the sheet should run with the low-end profile
+     */
+    static boolean isLowEnd(Context context, int profile) {
+        switch (profile) {
+            case BottomSheet.PROFILE_LOW_END:
+                return true;
+            case BottomSheet.PROFILE_DEFAULT:
+                return false;
+            default:
+                ActivityManager am = (ActivityManager) context
+                        .getSystemService(Context.ACTIVITY_SERVICE);
+                return ActivityManagerCompat.isLowRamDevice(am) || getAnimatorScale(context) == 0;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static float getAnimatorScale(Context context) {
+        ContentResolver resolver = context.getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1);
+        }
+        return Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1);
+    }
+}
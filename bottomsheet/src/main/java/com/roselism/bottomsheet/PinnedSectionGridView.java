@@ -18,20 +18,64 @@ package com.roselism.bottomsheet;
  */
 
 import android.content.Context;
+import android.database.DataSetObserver;
+import android.graphics.Canvas;
 import android.util.AttributeSet;
+import android.view.View;
 import android.widget.GridView;
+import android.widget.ListAdapter;
 
 /**
- * ListView capable to pin views at its top while the rest is still scrolled.
+ * GridView capable to pin views at its top while the rest is still scrolled.
+ * <p/>
+ * With a {@link SimpleSectionedGridAdapter}, the header of the section owning the first visible
+ * row is drawn at the top once its own row has scrolled away.
  */
 class PinnedSectionGridView extends GridView {
 
+    /**
+     * Told when {@link GridView#AUTO_FIT} resolves a different number of columns, during the
+     * measure pass, before the rows are laid out.
+     */
+    interface OnColumnsChangedListener {
+
+        void onColumnsChanged(int numColumns);
+    }
+
     // -- class fields
 
     private int mNumColumns;
     private int mHorizontalSpacing;
     private int mColumnWidth;
     private int mAvailableWidth;
+    private int mResolvedNumColumns;
+    private int mPlannedHeight = -1;
+    private OnColumnsChangedListener mColumnsChangedListener;
+
+    // -- pinned header
+
+    private boolean                    mPinHeaders = true;
+    private SimpleSectionedGridAdapter mSectionedAdapter;
+    /**
+     * The one view the pinned header is drawn from; re-bound only when the section changes.
+     */
+    private View                       mPinnedView;
+    private int mPinnedIndex    = -1;
+    private int mPinnedPosition = -1;
+    private int mPinnedOffset;
+
+    private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            mPinnedIndex = -1;
+            mPinnedPosition = -1;
+        }
+
+        @Override
+        public void onInvalidated() {
+            onChanged();
+        }
+    };
 
     public PinnedSectionGridView(Context context) {
         super(context);
@@ -45,13 +89,35 @@ class PinnedSectionGridView extends GridView {
         super(context, attrs, defStyleAttr);
     }
 
+    /**
+     * @return the number of columns, resolved against the available width in
+     * {@link GridView#AUTO_FIT} mode (estimated from the display width before the first measure)
+     */
     public int getNumColumns() {
-        return mNumColumns;
+        if (mNumColumns != AUTO_FIT) {
+            return mNumColumns;
+        }
+        if (mResolvedNumColumns == 0) {
+            return resolveNumColumns(getResources().getDisplayMetrics().widthPixels);
+        }
+        return mResolvedNumColumns;
+    }
+
+    private int resolveNumColumns(int availableWidth) {
+        if (mColumnWidth <= 0) {
+            // Just make up a number if we don't have enough info
+            return 2;
+        }
+        int availableSpace = availableWidth - getPaddingLeft() - getPaddingRight();
+        // Client told us to pick the number of columns
+        return Math.max(1, (availableSpace + mHorizontalSpacing)
+                / (mColumnWidth + mHorizontalSpacing));
     }
 
     @Override
     public void setNumColumns(int numColumns) {
         mNumColumns = numColumns;
+        mAvailableWidth = 0;
         super.setNumColumns(numColumns);
     }
 
@@ -62,6 +128,7 @@ class PinnedSectionGridView extends GridView {
     @Override
     public void setHorizontalSpacing(int horizontalSpacing) {
         mHorizontalSpacing = horizontalSpacing;
+        mAvailableWidth = 0;
         super.setHorizontalSpacing(horizontalSpacing);
     }
 
@@ -72,32 +139,151 @@ class PinnedSectionGridView extends GridView {
     @Override
     public void setColumnWidth(int columnWidth) {
         mColumnWidth = columnWidth;
+        mAvailableWidth = 0;
         super.setColumnWidth(columnWidth);
     }
 
+    /**
+     * @param pinHeaders whether the header of the section at the top stays pinned while the rest
+     *                   of the section scrolls
+     */
+    public void setPinHeaders(boolean pinHeaders) {
+        mPinHeaders = pinHeaders;
+        invalidate();
+    }
+
+    @Override
+    public void setAdapter(ListAdapter adapter) {
+        if (mSectionedAdapter != null) {
+            mSectionedAdapter.unregisterDataSetObserver(mDataSetObserver);
+        }
+        mSectionedAdapter = adapter instanceof SimpleSectionedGridAdapter
+                ? (SimpleSectionedGridAdapter) adapter
+                : null;
+        if (mSectionedAdapter != null) {
+            mSectionedAdapter.registerDataSetObserver(mDataSetObserver);
+        }
+        mDataSetObserver.onChanged();
+        super.setAdapter(adapter);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (updatePinnedHeader()) {
+            int saveCount = canvas.save();
+            canvas.clipRect(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(),
+                    getHeight() - getPaddingBottom());
+            canvas.translate(getPaddingLeft(), getPaddingTop() + mPinnedOffset);
+            mPinnedView.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * Finds the section owning the first visible row and, if its header has scrolled out of
+     * sight, prepares {@link #mPinnedView} for drawing. Sections only ever change one at a time
+     * while scrolling, so starting the search from the last pinned section keeps the per frame
+     * cost independent of the number of sections.
+     *
+     * @return whether a pinned header should be drawn
+     */
+    private boolean updatePinnedHeader() {
+        SimpleSectionedGridAdapter adapter = mSectionedAdapter;
+        if (!mPinHeaders || adapter == null || adapter.getHeaderCount() == 0
+                || getChildCount() == 0) {
+            return false;
+        }
+        int first = getFirstVisiblePosition();
+        int count = adapter.getHeaderCount();
+        int index = Math.min(Math.max(mPinnedIndex, 0), count - 1);
+        while (index + 1 < count && adapter.getHeaderPosition(index + 1) <= first) {
+            index++;
+        }
+        while (index >= 0 && adapter.getHeaderPosition(index) > first) {
+            index--;
+        }
+        if (index < 0) {
+            return false;
+        }
+        int position = adapter.getHeaderPosition(index);
+        if (position == first && getChildAt(0).getTop() >= getPaddingTop()) {
+            // the header itself is fully visible in place
+            return false;
+        }
+
+        if (position != mPinnedPosition) {
+            mPinnedView = adapter.getView(position, mPinnedView, this);
+            int width = getWidth() - getPaddingLeft() - getPaddingRight();
+            mPinnedView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+            mPinnedView.layout(0, 0, width, mPinnedView.getMeasuredHeight());
+            mPinnedPosition = position;
+        }
+        mPinnedIndex = index;
+
+        // the next header pushes the pinned one out
+        mPinnedOffset = 0;
+        if (index + 1 < count) {
+            int next = adapter.getHeaderPosition(index + 1) - first;
+            if (next < getChildCount()) {
+                int nextTop = getChildAt(next).getTop() - getPaddingTop();
+                mPinnedOffset = Math.min(0, nextTop - mPinnedView.getHeight());
+            }
+        }
+        return true;
+    }
+
+    void setOnColumnsChangedListener(OnColumnsChangedListener listener) {
+        mColumnsChangedListener = listener;
+    }
+
+    /**
+     * Measure to {@code height} plus the padding, as far as the parent allows, instead of as many
+     * rows as tall as the first one.
+     *
+     * @param height height of the rows, -1 to measure them the way the grid does
+     */
+    void setPlannedHeight(int height) {
+        if (height != mPlannedHeight) {
+            mPlannedHeight = height;
+            requestLayout();
+        }
+    }
+
     public int getAvailableWidth() {
         return mAvailableWidth != 0 ? mAvailableWidth : getWidth();
     }
 
-//    @Override
-//    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-//        if (mNumColumns == GridView.AUTO_FIT) {
-//            mAvailableWidth = MeasureSpec.getSize(widthMeasureSpec);
-//            if (mColumnWidth > 0) {
-//                int availableSpace = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
-//                // Client told us to pick the number of columns
-//                mNumColumns = (availableSpace + mHorizontalSpacing) /
-//                        (mColumnWidth + mHorizontalSpacing);
-//            } else {
-//                // Just make up a number if we don't have enough info
-//                mNumColumns = 2;
-//            }
-//            if(null != getAdapter()){
-//                if(getAdapter() instanceof SimpleSectionedGridAdapter){
-//                    ((SimpleSectionedGridAdapter)getAdapter()).setSections();
-//                }
-//            }
-//        }
-//        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-//    }
+    /**
+     * Column count, header width and fillers only depend on the available width, so they are
+     * recomputed when it changes instead of on every measure pass.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int availableWidth = MeasureSpec.getSize(widthMeasureSpec);
+        if (availableWidth != mAvailableWidth) {
+            mAvailableWidth = availableWidth;
+            int numColumns = mNumColumns == AUTO_FIT
+                    ? resolveNumColumns(availableWidth)
+                    : mNumColumns;
+            boolean columnsChanged = numColumns != mResolvedNumColumns;
+            mResolvedNumColumns = numColumns;
+            if (mSectionedAdapter != null) {
+                mSectionedAdapter.onAvailableWidthChanged(columnsChanged);
+            }
+            if (columnsChanged && mColumnsChangedListener != null) {
+                mColumnsChangedListener.onColumnsChanged(numColumns);
+            }
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        if (mPlannedHeight >= 0 && heightMode != MeasureSpec.EXACTLY) {
+            int height = mPlannedHeight + getPaddingTop() + getPaddingBottom();
+            if (heightMode == MeasureSpec.AT_MOST) {
+                height = Math.min(height, MeasureSpec.getSize(heightMeasureSpec));
+            }
+            setMeasuredDimension(getMeasuredWidth(), height);
+        }
+    }
 }
\ No newline at end of file
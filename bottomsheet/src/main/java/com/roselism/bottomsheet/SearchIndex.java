@@ -0,0 +1,230 @@
+package com.roselism.bottomsheet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Prefix index over the words of item texts. Every query term must be the start of some word of
+ * an item for the item to match, so {@code "go dr"} finds "Google Drive". Matching ignores case.
+ * Uses no Android classes, so it can be built and queried on any thread and checked on a plain
+ * JVM. An index is immutable once built.
+ */
+final class SearchIndex {
+
+    /**
+     * Lets a query give up early once its result is no longer wanted.
+     */
+    interface Cancellation {
+
+        boolean isCancelled();
+    }
+
+    static final int[] NO_MATCH = new int[0];
+
+    private static final Cancellation NEVER = new Cancellation() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /** How many postings a query merges between checks for cancellation. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final int mItemCount;
+    /** Every distinct word, sorted. */
+    private final String[] mWords;
+    /** The items of word {@code i} are {@code mPostings[mStarts[i]..mStarts[i + 1])}. */
+    private final int[] mStarts;
+    private final int[] mPostings;
+
+    private SearchIndex(int itemCount, String[] words, int[] starts, int[] postings) {
+        mItemCount = itemCount;
+        mWords = words;
+        mStarts = starts;
+        mPostings = postings;
+    }
+
+    /**
+     * @param texts the texts of every item, in item order; an item may have several texts,
+     *              e.g. a title and a content, and any of them may be null
+     */
+    static SearchIndex build(String[][] texts) {
+        int itemCount = texts.length;
+        String[] dictionary = new String[16];
+        HashMap<String, Integer> ids = new HashMap<>();
+        // one long per occurrence: the word in the upper half, the item in the lower half
+        long[] pairs = new long[16];
+        int pairCount = 0;
+        StringBuilder word = new StringBuilder();
+        for (int item = 0; item < itemCount; item++) {
+            for (String text : texts[item]) {
+                if (text == null) {
+                    continue;
+                }
+                int length = text.length();
+                for (int i = 0; i <= length; i++) {
+                    char c = i < length ? text.charAt(i) : ' ';
+                    if (Character.isLetterOrDigit(c)) {
+                        word.append(Character.toLowerCase(c));
+                        continue;
+                    }
+                    if (word.length() == 0) {
+                        continue;
+                    }
+                    String w = word.toString();
+                    word.setLength(0);
+                    Integer id = ids.get(w);
+                    if (id == null) {
+                        id = ids.size();
+                        ids.put(w, id);
+                        if (id == dictionary.length) {
+                            dictionary = Arrays.copyOf(dictionary, id * 2);
+                        }
+                        dictionary[id] = w;
+                    }
+                    if (pairCount == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairCount * 2);
+                    }
+                    pairs[pairCount++] = ((long) id << 32) | item;
+                }
+            }
+        }
+
+        // number the words in sorted order so that a prefix covers a range of them
+        int wordCount = ids.size();
+        String[] words = Arrays.copyOf(dictionary, wordCount);
+        Arrays.sort(words);
+        int[] rank = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            rank[ids.get(words[i])] = i;
+        }
+        for (int i = 0; i < pairCount; i++) {
+            pairs[i] = ((long) rank[(int) (pairs[i] >>> 32)] << 32) | (pairs[i] & 0xffffffffL);
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        int[] starts = new int[wordCount + 1];
+        int[] postings = new int[pairCount];
+        int n = 0;
+        long last = -1;
+        for (int i = 0; i < pairCount; i++) {
+            // a word used twice by one item is posted once
+            if (pairs[i] == last) {
+                continue;
+            }
+            last = pairs[i];
+            starts[(int) (last >>> 32) + 1]++;
+            postings[n++] = (int) last;
+        }
+        for (int i = 0; i < wordCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        return new SearchIndex(itemCount, words, starts, Arrays.copyOf(postings, n));
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * @return the items matching every term of {@code query}, in ascending order, or every item
+     * if the query has no terms
+     */
+    int[] query(String query) {
+        return query(query, NEVER);
+    }
+
+    /**
+     * @return the matching items in ascending order, or null if the query was cancelled
+     */
+    int[] query(String query, Cancellation cancellation) {
+        String[] terms = split(query);
+        if (terms.length == 0) {
+            int[] all = new int[mItemCount];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        BitSet result = null;
+        for (String term : terms) {
+            BitSet matches = match(term, cancellation);
+            if (matches == null) {
+                return null;
+            }
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                return NO_MATCH;
+            }
+        }
+        int[] items = new int[result.cardinality()];
+        int n = 0;
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            items[n++] = i;
+        }
+        return items;
+    }
+
+    private BitSet match(String prefix, Cancellation cancellation) {
+        int from = lowerBound(prefix);
+        int to = from;
+        while (to < mWords.length && mWords[to].startsWith(prefix)) {
+            to++;
+        }
+        BitSet items = new BitSet(mItemCount);
+        int merged = 0;
+        for (int i = mStarts[from]; i < mStarts[to]; i++) {
+            items.set(mPostings[i]);
+            if (++merged % CHECK_INTERVAL == 0 && cancellation.isCancelled()) {
+                return null;
+            }
+        }
+        return cancellation.isCancelled() ? null : items;
+    }
+
+    /**
+     * @return the first word not less than {@code key}
+     */
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = mWords.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mWords[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the lower case terms of {@code query}, split the way item texts are
+     */
+    static String[] split(String query) {
+        String[] terms = new String[4];
+        int count = 0;
+        StringBuilder term = new StringBuilder();
+        int length = query.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                if (count == terms.length) {
+                    terms = Arrays.copyOf(terms, count * 2);
+                }
+                terms[count++] = term.toString();
+                term.setLength(0);
+            }
+        }
+        return Arrays.copyOf(terms, count);
+    }
+}
@@ -0,0 +1,174 @@
+package com.roselism.bottomsheet;
+
+import java.util.Arrays;
+
+/**
+ * Where the headers, header fillers and fillers of a sectioned grid go, kept in plain int arrays
+ * so positions map between the base adapter and the grid with a binary search.
+ * <p>
+ * Every section starts with {@code numColumns - 1} header fillers followed by its header, so the
+ * header spans a whole row. Fillers then pad the last row of a section up to the next one.
+ */
+final class SectionIndex {
+
+    static final int TYPE_FILLER = 0;
+    static final int TYPE_HEADER = 1;
+    static final int TYPE_HEADER_FILLER = 2;
+
+    static final int INVALID_POSITION = -1;
+
+    static final SectionIndex EMPTY = new SectionIndex(new int[0], new int[0], new int[0],
+            new int[0], new int[0]);
+
+    /** sectioned position of every entry, ascending */
+    private final int[] mPositions;
+    /** base position every entry is placed in front of, ascending */
+    private final int[] mAnchors;
+    private final int[] mTypes;
+    /** index of the section every entry belongs to */
+    private final int[] mOwners;
+    /** sectioned position of the header of every section */
+    private final int[] mHeaders;
+
+    private SectionIndex(int[] positions, int[] anchors, int[] types, int[] owners,
+            int[] headers) {
+        mPositions = positions;
+        mAnchors = anchors;
+        mTypes = types;
+        mOwners = owners;
+        mHeaders = headers;
+    }
+
+    /**
+     * @param firstPositions base position of the first item of every section, ascending
+     * @param numColumns     columns of the grid
+     */
+    static SectionIndex build(int[] firstPositions, int numColumns) {
+        int sections = firstPositions.length;
+        if (sections == 0) {
+            return EMPTY;
+        }
+        int columns = Math.max(1, numColumns);
+        // count first so every array is allocated once at its final size
+        int size = sections * columns;
+        for (int i = 0; i < sections - 1; i++) {
+            size += getFillerCount(firstPositions[i + 1] - firstPositions[i], columns);
+        }
+        int[] positions = new int[size];
+        int[] anchors = new int[size];
+        int[] types = new int[size];
+        int[] owners = new int[size];
+        int[] headers = new int[sections];
+
+        int n = 0;
+        for (int i = 0; i < sections; i++) {
+            int first = firstPositions[i];
+            for (int j = 0; j < columns; j++) {
+                positions[n] = first + n;
+                anchors[n] = first;
+                types[n] = j < columns - 1 ? TYPE_HEADER_FILLER : TYPE_HEADER;
+                owners[n] = i;
+                n++;
+            }
+            headers[i] = positions[n - 1];
+            if (i < sections - 1) {
+                int next = firstPositions[i + 1];
+                int fillers = getFillerCount(next - first, columns);
+                for (int k = 0; k < fillers; k++) {
+                    positions[n] = next + n;
+                    anchors[n] = next;
+                    types[n] = TYPE_FILLER;
+                    owners[n] = i;
+                    n++;
+                }
+            }
+        }
+        return new SectionIndex(positions, anchors, types, owners, headers);
+    }
+
+    /**
+     * @return how many fillers pad the last row of a section of {@code items} items
+     */
+    private static int getFillerCount(int items, int columns) {
+        int remainder = items % columns;
+        return remainder == 0 ? 0 : columns - remainder;
+    }
+
+    /**
+     * @return the number of entries, headers and fillers together
+     */
+    int size() {
+        return mPositions.length;
+    }
+
+    int getSectionedPosition(int index) {
+        return mPositions[index];
+    }
+
+    /**
+     * @return one of the {@code TYPE_} constants
+     */
+    int getType(int index) {
+        return mTypes[index];
+    }
+
+    /**
+     * @return the index of the section the entry belongs to
+     */
+    int getSection(int index) {
+        return mOwners[index];
+    }
+
+    int getHeaderCount() {
+        return mHeaders.length;
+    }
+
+    /**
+     * @return the sectioned position of the header of the {@code section}th section
+     */
+    int getHeaderPosition(int section) {
+        return mHeaders[section];
+    }
+
+    /**
+     * @return the index of the entry at {@code sectionedPosition}, or -1 if an item is there
+     */
+    int indexOf(int sectionedPosition) {
+        int index = Arrays.binarySearch(mPositions, sectionedPosition);
+        return index >= 0 ? index : -1;
+    }
+
+    int positionToSectionedPosition(int position) {
+        return position + upperBound(mAnchors, position);
+    }
+
+    /**
+     * @return the base position of the item at {@code sectionedPosition}, or
+     * {@link #INVALID_POSITION} if a header or filler is there
+     */
+    int sectionedPositionToPosition(int sectionedPosition) {
+        int index = Arrays.binarySearch(mPositions, sectionedPosition);
+        if (index >= 0) {
+            return INVALID_POSITION;
+        }
+        // the insertion point is the number of entries in front of the item
+        return sectionedPosition + index + 1;
+    }
+
+    /**
+     * @return the number of values in {@code sorted} that are at most {@code key}
+     */
+    private static int upperBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
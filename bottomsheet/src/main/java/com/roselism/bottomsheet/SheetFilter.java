@@ -0,0 +1,165 @@
+package com.roselism.bottomsheet;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filters the items of a sheet as the user types. Queries wait for a pause in typing, then run
+ * on the executor against a {@link SearchIndex} of the item titles and the content of
+ * {@link BottomSheet#TWO} items, which is built there as well. A new query or a new set of items
+ * cancels the query in flight, so only the result of the latest one is delivered.
+ * <p>
+ * All methods must be called on the main thread.
+ */
+final class SheetFilter {
+
+    /**
+     * Receives the results on the main thread.
+     */
+    interface Receiver {
+
+        /**
+         * @param items the matching items in menu order, or null once the query is cleared
+         */
+        void onFiltered(@Nullable List<ActionMenuItem> items);
+    }
+
+    private static final long DEBOUNCE_DELAY = 150;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Executor mExecutor;
+    private final Receiver mReceiver;
+    /** Bumped by every change, a query only delivers if it is still current. */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private ActionMenuItem[] mItems = new ActionMenuItem[0];
+    private String mQuery = "";
+    // guarded by this
+    private ActionMenuItem[] mIndexedItems;
+    private SearchIndex mIndex;
+
+    private final Runnable mSubmit = new Runnable() {
+        @Override
+        public void run() {
+            submit();
+        }
+    };
+
+    /**
+     * @param executor runs indexing and queries, a shared background pool when null
+     */
+    SheetFilter(@Nullable Executor executor, Receiver receiver) {
+        mExecutor = executor != null ? executor : AsyncTask.THREAD_POOL_EXECUTOR;
+        mReceiver = receiver;
+    }
+
+    /**
+     * Search {@code items} from now on. They are indexed right away, ahead of the first query,
+     * and a current query runs again without waiting.
+     */
+    void setItems(List<ActionMenuItem> items) {
+        final ActionMenuItem[] snapshot = items.toArray(new ActionMenuItem[items.size()]);
+        mItems = snapshot;
+        if (isEmpty(mQuery)) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    indexOf(snapshot);
+                }
+            });
+        } else {
+            mHandler.removeCallbacks(mSubmit);
+            submit();
+        }
+    }
+
+    void setQuery(CharSequence query) {
+        mQuery = query.toString();
+        mGeneration.incrementAndGet();
+        mHandler.removeCallbacks(mSubmit);
+        if (isEmpty(mQuery)) {
+            mReceiver.onFiltered(null);
+        } else {
+            mHandler.postDelayed(mSubmit, DEBOUNCE_DELAY);
+        }
+    }
+
+    /**
+     * @return whether a query is typed, even if its result did not arrive yet
+     */
+    boolean isFiltering() {
+        return !isEmpty(mQuery);
+    }
+
+    /**
+     * Drop the pending and running query, nothing is delivered until the next change.
+     */
+    void cancel() {
+        mGeneration.incrementAndGet();
+        mHandler.removeCallbacks(mSubmit);
+    }
+
+    private static boolean isEmpty(String query) {
+        return SearchIndex.split(query).length == 0;
+    }
+
+    private void submit() {
+        final int generation = mGeneration.incrementAndGet();
+        final ActionMenuItem[] items = mItems;
+        final String query = mQuery;
+        final SearchIndex.Cancellation cancellation = new SearchIndex.Cancellation() {
+            @Override
+            public boolean isCancelled() {
+                return mGeneration.get() != generation;
+            }
+        };
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                int[] matches = indexOf(items).query(query, cancellation);
+                if (matches == null) {
+                    return;
+                }
+                final ArrayList<ActionMenuItem> result = new ArrayList<>(matches.length);
+                for (int match : matches) {
+                    result.add(items[match]);
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!cancellation.isCancelled()) {
+                            mReceiver.onFiltered(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the index of {@code items}, built on the calling thread unless it already exists
+     */
+    private synchronized SearchIndex indexOf(ActionMenuItem[] items) {
+        if (mIndexedItems != items) {
+            String[][] texts = new String[items.length][];
+            for (int i = 0; i < items.length; i++) {
+                ItemPayload payload = items[i].getPayload();
+                texts[i] = new String[]{
+                        payload.title == null ? null : payload.title.toString(),
+                        payload.type == BottomSheet.TWO ? payload.content : null};
+            }
+            mIndex = SearchIndex.build(texts);
+            mIndexedItems = items;
+        }
+        return mIndex;
+    }
+}
@@ -0,0 +1,104 @@
+package com.roselism.bottomsheet;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of every frame drawn during a phase of the sheet, such as opening or a
+ * drag, and reports the aggregate when the phase ends. Samples go into a fixed buffer that keeps
+ * the latest {@link #MAX_SAMPLES} frames, so nothing is allocated while frames are recorded.
+ * <p>
+ * Must be used on the main thread.
+ */
+final class SheetFrameMonitor implements Choreographer.FrameCallback {
+
+    private static final int MAX_SAMPLES = 256;
+    private static final int NO_PHASE = -1;
+
+    private final BottomSheet mSheet;
+    private final BottomSheet.OnFrameStatsListener mListener;
+    /** frames longer than this missed at least one vsync */
+    private final long mJankThreshold;
+    private final long[] mSamples = new long[MAX_SAMPLES];
+    private final long[] mSorted = new long[MAX_SAMPLES];
+    private int mPhase = NO_PHASE;
+    private int mFrameCount;
+    private int mJankyFrames;
+    private long mLastFrameTime;
+
+    SheetFrameMonitor(Context context, BottomSheet sheet,
+            BottomSheet.OnFrameStatsListener listener) {
+        mSheet = sheet;
+        mListener = listener;
+        float rate = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE))
+                .getDefaultDisplay().getRefreshRate();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / (rate > 0 ? rate : 60));
+        mJankThreshold = interval + interval / 2;
+    }
+
+    /**
+     * Start recording {@code phase}, ending the phase being recorded if it is a different one.
+     *
+     * @param phase one of the {@code PHASE_} constants of {@link BottomSheet}
+     */
+    void begin(int phase) {
+        if (phase == mPhase) {
+            return;
+        }
+        end();
+        mPhase = phase;
+        mFrameCount = 0;
+        mJankyFrames = 0;
+        mLastFrameTime = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stop recording and report the phase, if it saw any frame.
+     */
+    void end() {
+        if (mPhase == NO_PHASE) {
+            return;
+        }
+        Choreographer.getInstance().removeFrameCallback(this);
+        int phase = mPhase;
+        mPhase = NO_PHASE;
+        if (mFrameCount > 0) {
+            mListener.onFrameStats(mSheet, createStats(phase));
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTime != 0) {
+            long duration = frameTimeNanos - mLastFrameTime;
+            mSamples[mFrameCount % MAX_SAMPLES] = duration;
+            mFrameCount++;
+            if (duration > mJankThreshold) {
+                mJankyFrames++;
+            }
+        }
+        mLastFrameTime = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private SheetFrameStats createStats(int phase) {
+        int count = Math.min(mFrameCount, MAX_SAMPLES);
+        System.arraycopy(mSamples, 0, mSorted, 0, count);
+        Arrays.sort(mSorted, 0, count);
+        return new SheetFrameStats(phase, mFrameCount, mJankyFrames, percentile(count, 50),
+                percentile(count, 95), percentile(count, 99));
+    }
+
+    /**
+     * @return the nearest-rank percentile of the sorted samples, in milliseconds
+     */
+    private float percentile(int count, int percent) {
+        int rank = (int) Math.ceil(percent * count / 100f);
+        return mSorted[Math.max(0, rank - 1)] / (float) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.roselism.bottomsheet;
+
+import java.util.Locale;
+
+/**
+ * Frame timings of one phase of a sheet, reported to a
+ * {@link BottomSheet.OnFrameStatsListener}. Percentiles cover the latest 256 frames of the phase.
+ */
+public final class SheetFrameStats {
+
+    private final int phase;
+    private final int frameCount;
+    private final int jankyFrames;
+    private final float p50;
+    private final float p95;
+    private final float p99;
+
+    SheetFrameStats(int phase, int frameCount, int jankyFrames, float p50, float p95,
+            float p99) {
+        this.phase = phase;
+        this.frameCount = frameCount;
+        this.jankyFrames = jankyFrames;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    /**
+     * @return one of the {@code PHASE_} constants of {@link BottomSheet}
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return how many frames took longer than one and a half refresh intervals of the display
+     */
+    public int getJankyFrames() {
+        return jankyFrames;
+    }
+
+    /**
+     * @return the median frame duration in milliseconds
+     */
+    public float getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 95th percentile of the frame durations in milliseconds
+     */
+    public float getP95() {
+        return p95;
+    }
+
+    /**
+     * @return the 99th percentile of the frame durations in milliseconds
+     */
+    public float getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "SheetFrameStats{phase=%d, frames=%d, janky=%d, "
+                + "p50=%.1fms, p95=%.1fms, p99=%.1fms}", phase, frameCount, jankyFrames, p50, p95,
+                p99);
+    }
+}
@@ -0,0 +1,164 @@
+package com.roselism.bottomsheet;
+
+/**
+ * The rows of a sheet worked out from the item data alone: where the items are cut off while it
+ * is collapsed, where its sections start and where their headers and fillers go, and how tall the
+ * list is for given row heights. The view layer only applies the plan. Also holds the grid math
+ * shared by the sectioned adapter.
+ */
+final class SheetLayoutModel {
+
+    /** Same values as the stretch modes of {@link android.widget.GridView}. */
+    static final int NO_STRETCH = 0;
+    static final int STRETCH_SPACING = 1;
+    static final int STRETCH_COLUMN_WIDTH = 2;
+    static final int STRETCH_SPACING_UNIFORM = 3;
+
+    private final int mNumColumns;
+    private final int mItemCount;
+    private final int mShortCount;
+    private final int[] mSectionStarts;
+    private final SectionIndex mSectionIndex;
+
+    /**
+     * @param groupIds   the group id of every item in order, a section starts where it changes,
+     *                   or null for a sheet without sections
+     * @param itemCount  number of items of the sheet, only as many group ids are looked at
+     * @param numColumns columns of the grid
+     * @param limitRows  rows shown while collapsed, 0 or less to always show every item
+     */
+    SheetLayoutModel(int[] groupIds, int itemCount, int numColumns, int limitRows) {
+        mNumColumns = Math.max(1, numColumns);
+        mItemCount = itemCount;
+        long limit = limitRows > 0 ? (long) limitRows * mNumColumns : Long.MAX_VALUE;
+        // the last cell of a collapsed sheet is taken by the more item
+        mShortCount = mItemCount > limit ? (int) limit - 1 : mItemCount;
+        mSectionStarts = groupIds == null ? new int[0] : findSectionStarts(groupIds, itemCount);
+        mSectionIndex = SectionIndex.build(mSectionStarts, mNumColumns);
+    }
+
+    /**
+     * @return the position of the first item of every section but the first, where the group id
+     * changes from the item before
+     */
+    static int[] findSectionStarts(int[] groupIds, int count) {
+        int sections = 0;
+        for (int i = 1; i < count; i++) {
+            if (groupIds[i] != groupIds[i - 1]) {
+                sections++;
+            }
+        }
+        int[] starts = new int[sections];
+        int n = 0;
+        for (int i = 1; i < count; i++) {
+            if (groupIds[i] != groupIds[i - 1]) {
+                starts[n++] = i;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Width of a header spanning every column, resolved the way {@link android.widget.GridView}
+     * lays out its columns.
+     *
+     * @param width       available width, without padding
+     * @param stretchMode one of the stretch mode constants
+     */
+    static int getHeaderWidth(int width, int numColumns, int columnWidth, int spacing,
+            int stretchMode) {
+        int columns = Math.max(1, numColumns);
+        int spaceLeftOver = width - columns * columnWidth - (columns - 1) * spacing;
+        switch (stretchMode) {
+            case NO_STRETCH:
+                width -= spaceLeftOver;
+                break;
+            case STRETCH_COLUMN_WIDTH:
+                columnWidth += spaceLeftOver / columns;
+                break;
+            case STRETCH_SPACING:
+                spacing += columns > 1 ? spaceLeftOver / (columns - 1) : spaceLeftOver;
+                break;
+            case STRETCH_SPACING_UNIFORM:
+                width = width - spaceLeftOver + 2 * spacing;
+                break;
+        }
+        return width + (columns - 1) * (columnWidth + spacing);
+    }
+
+    /**
+     * @return the position of the first item of every section but the first
+     */
+    int[] getSectionStarts() {
+        return mSectionStarts;
+    }
+
+    /**
+     * @return where the headers and fillers of the sections go among the items
+     */
+    SectionIndex getSectionIndex() {
+        return mSectionIndex;
+    }
+
+    /**
+     * @return the number of rows of the grid, headers and fillers included
+     */
+    int getRowCount() {
+        return (mItemCount + mSectionIndex.size() + mNumColumns - 1) / mNumColumns;
+    }
+
+    /**
+     * Height of the grid with every row laid out, without its padding. A row is as tall as its
+     * tallest cell, fillers take no height.
+     *
+     * @param itemHeights     height of the row of every item, in order
+     * @param headerHeight    height of a section header
+     * @param verticalSpacing space between two rows
+     */
+    int getListHeight(int[] itemHeights, int headerHeight, int verticalSpacing) {
+        int total = mItemCount + mSectionIndex.size();
+        int height = 0;
+        int rowHeight = 0;
+        int entry = 0;
+        int position = 0;
+        for (int cell = 0; cell < total; cell++) {
+            int cellHeight;
+            if (entry < mSectionIndex.size() && mSectionIndex.getSectionedPosition(entry) == cell) {
+                cellHeight = mSectionIndex.getType(entry++) == SectionIndex.TYPE_FILLER ? 0
+                        : headerHeight;
+            } else {
+                cellHeight = itemHeights[position++];
+            }
+            rowHeight = Math.max(rowHeight, cellHeight);
+            if (cell % mNumColumns == mNumColumns - 1 || cell == total - 1) {
+                height += rowHeight;
+                rowHeight = 0;
+            }
+        }
+        int rows = getRowCount();
+        return rows > 0 ? height + (rows - 1) * verticalSpacing : 0;
+    }
+
+    int getNumColumns() {
+        return mNumColumns;
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * @return whether the sheet has more items than fit while collapsed
+     */
+    boolean isCollapsible() {
+        return mShortCount < mItemCount;
+    }
+
+    /**
+     * @return the number of items shown before the more item while collapsed, or every item if
+     * the sheet is not collapsible
+     */
+    int getShortCount() {
+        return mShortCount;
+    }
+}
@@ -0,0 +1,115 @@
+package com.roselism.bottomsheet;
+
+import android.animation.ObjectAnimator;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.support.annotation.NonNull;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Hosts an embedded sheet inside the decor view of its activity, over a scrim that stands in for
+ * the dim of a dialog window. Touches outside the sheet and the back key are reported instead of
+ * reaching the activity.
+ */
+class SheetOverlay extends ViewGroup {
+
+    /** How long the scrim, or the dim of a dialog sheet, takes to fade in or out. */
+    static final int SCRIM_DURATION = 250;
+
+    private final View mSheet;
+    private final ColorDrawable mScrim;
+    private final int[] mLocation = new int[2];
+    private Runnable mOnOutsideTouch;
+    private Runnable mOnBack;
+
+    SheetOverlay(Context context, @NonNull View sheet, int sheetWidth, float dimAmount) {
+        super(context);
+        mSheet = sheet;
+        mScrim = new ColorDrawable(Color.argb((int) (dimAmount * 255), 0, 0, 0));
+        mScrim.setAlpha(0);
+        setBackground(mScrim);
+        setFocusableInTouchMode(true);
+        addView(sheet, new LayoutParams(sheetWidth, LayoutParams.WRAP_CONTENT));
+    }
+
+    void setOnOutsideTouch(Runnable action) {
+        mOnOutsideTouch = action;
+    }
+
+    void setOnBack(Runnable action) {
+        mOnBack = action;
+    }
+
+    void showScrim() {
+        requestFocus();
+        ObjectAnimator.ofInt(mScrim, "alpha", 0, 255).setDuration(SCRIM_DURATION)
+                .start();
+    }
+
+    void hideScrim() {
+        ObjectAnimator.ofInt(mScrim, "alpha", 255, 0).setDuration(SCRIM_DURATION)
+                .start();
+    }
+
+    /**
+     * @return the height of the system bars covering the bottom of the decor view, which the
+     * content view of the activity keeps clear of
+     */
+    private int getBottomInset() {
+        View root = getRootView();
+        View content = root.findViewById(android.R.id.content);
+        if (content == null) {
+            return 0;
+        }
+        content.getLocationInWindow(mLocation);
+        return Math.max(0, root.getHeight() - mLocation[1] - content.getHeight());
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        setMeasuredDimension(width, height);
+        measureChild(mSheet, widthMeasureSpec, MeasureSpec.makeMeasureSpec(
+                Math.max(0, height - getBottomInset()), MeasureSpec.AT_MOST));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int bottom = b - t - getBottomInset();
+        int left = (r - l - mSheet.getMeasuredWidth()) / 2;
+        mSheet.layout(left, bottom - mSheet.getMeasuredHeight(), left + mSheet.getMeasuredWidth(),
+                bottom);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        // the sheet did not take this touch, so it landed on the scrim
+        if (event.getAction() == MotionEvent.ACTION_UP && mOnOutsideTouch != null) {
+            mOnOutsideTouch.run();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (event.getKeyCode() == KeyEvent.KEYCODE_BACK) {
+            if (event.getAction() == KeyEvent.ACTION_UP && !event.isCanceled()
+                    && mOnBack != null) {
+                mOnBack.run();
+            }
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+}
@@ -0,0 +1,187 @@
+package com.roselism.bottomsheet;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.WeakHashMap;
+
+/**
+ * Shows the sheets of one activity one after another. Requests for a sheet that is building,
+ * showing, queued or was shown within the coalescing window are dropped, so a double tap builds
+ * and shows a single sheet. Requests for other sheets are queued and shown in order once the
+ * current one is dismissed.
+ * <p>
+ * All methods must be called on the main thread.
+ */
+public final class SheetScheduler {
+
+    private static final long DEFAULT_WINDOW = 500;
+    private static final WeakHashMap<Activity, SheetScheduler> sSchedulers = new WeakHashMap<>();
+
+    /** weak, a strong reference from the value would keep the key of {@link #sSchedulers} alive */
+    private final WeakReference<Activity> mActivity;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Request> mQueue = new ArrayDeque<>();
+    private long mWindow = DEFAULT_WINDOW;
+    private Request mBuilding;
+    private Object mShowingKey;
+    private WeakReference<BottomSheet> mShowing;
+    private Object mLastKey;
+    private long mLastShownAt;
+
+    private SheetScheduler(Activity activity) {
+        mActivity = new WeakReference<>(activity);
+    }
+
+    /**
+     * @return the scheduler of {@code activity}
+     */
+    public static SheetScheduler of(@NonNull Activity activity) {
+        SheetScheduler scheduler = sSchedulers.get(activity);
+        if (scheduler == null) {
+            scheduler = new SheetScheduler(activity);
+            sSchedulers.put(activity, scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param window how long in milliseconds after a sheet is shown further requests for its key
+     *               are dropped
+     */
+    public void setCoalescingWindow(long window) {
+        mWindow = window;
+    }
+
+    /**
+     * Show the sheet built by {@code factory}, unless a sheet with the same key is already
+     * building, showing, queued or was just shown.
+     *
+     * @param key     identifies the sheet, compared with {@link Object#equals(Object)}
+     * @param factory builds the sheet, called at most once and only if the request is kept
+     * @return whether the request was kept
+     */
+    public boolean show(@NonNull Object key, @NonNull SheetFactory factory) {
+        if (isPending(key)) {
+            return false;
+        }
+        mQueue.add(new Request(key, factory));
+        scheduleNext();
+        return true;
+    }
+
+    private boolean isPending(Object key) {
+        clearIfGone();
+        if (mBuilding != null && mBuilding.key.equals(key) || key.equals(mShowingKey)) {
+            return true;
+        }
+        if (key.equals(mLastKey) && SystemClock.uptimeMillis() - mLastShownAt < mWindow) {
+            return true;
+        }
+        for (Request request : mQueue) {
+            if (request.key.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget the showing sheet if it went away without being dismissed, e.g. with its window, so
+     * that it does not block the queue for good. Nothing is shown any more once the activity
+     * finishes.
+     */
+    private void clearIfGone() {
+        Activity activity = mActivity.get();
+        if (activity == null || activity.isFinishing()) {
+            // queued factories usually hold on to the activity
+            mQueue.clear();
+        }
+        if (mShowingKey == null) {
+            return;
+        }
+        BottomSheet sheet = mShowing == null ? null : mShowing.get();
+        if (sheet == null || !sheet.isShowing() || activity == null || activity.isFinishing()) {
+            mShowingKey = null;
+            mShowing = null;
+        }
+    }
+
+    private void scheduleNext() {
+        clearIfGone();
+        if (mBuilding != null || mShowingKey != null || mQueue.isEmpty()) {
+            return;
+        }
+        final Request request = mQueue.poll();
+        mBuilding = request;
+        // build on the next message so that requests from the same burst of input join it
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                build(request);
+            }
+        });
+    }
+
+    private void build(final Request request) {
+        mBuilding = null;
+        Activity activity = mActivity.get();
+        if (activity == null || activity.isFinishing()) {
+            mQueue.clear();
+            mShowingKey = null;
+            mShowing = null;
+            return;
+        }
+        BottomSheet sheet = request.factory.create();
+        sheet.setDismissCallback(new Runnable() {
+            @Override
+            public void run() {
+                if (request.key.equals(mShowingKey)) {
+                    mShowingKey = null;
+                    mShowing = null;
+                }
+                scheduleNext();
+            }
+        });
+        mShowingKey = request.key;
+        mShowing = new WeakReference<>(sheet);
+        mLastKey = request.key;
+        mLastShownAt = SystemClock.uptimeMillis();
+        boolean shown = false;
+        try {
+            sheet.show();
+            shown = true;
+        } finally {
+            if (!shown) {
+                // the dismiss callback will never come
+                mShowingKey = null;
+                mShowing = null;
+            }
+        }
+    }
+
+    /**
+     * Builds a sheet once its show request is kept.
+     */
+    public interface SheetFactory {
+
+        @NonNull
+        BottomSheet create();
+    }
+
+    private static final class Request {
+
+        final Object key;
+        final SheetFactory factory;
+
+        Request(Object key, SheetFactory factory) {
+            this.key = key;
+            this.factory = factory;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.roselism.bottomsheet;
+
+import java.util.Locale;
+
+/**
+ * How long each phase of showing a sheet took, in milliseconds, reported to a
+ * {@link BottomSheet.OnShowTimingsListener} once the sheet has drawn its first frame. Phases
+ * that did not run, such as the window setup of an embedded sheet, are 0.
+ */
+public final class SheetShowTimings {
+
+    private final float[] sections;
+    private final float buildToShow;
+    private final float firstFrame;
+
+    SheetShowTimings(float[] sections, float buildToShow, float firstFrame) {
+        this.sections = sections;
+        this.buildToShow = buildToShow;
+        this.firstFrame = firstFrame;
+    }
+
+    /**
+     * @return time spent resolving the style attributes of the sheet
+     */
+    public float getStyleMillis() {
+        return sections[ShowTracer.STYLE];
+    }
+
+    /**
+     * @return time spent setting up translucent system bars
+     */
+    public float getTranslucentMillis() {
+        return sections[ShowTracer.TRANSLUCENT];
+    }
+
+    /**
+     * @return time spent inflating the layout and setting up the list and its adapter
+     */
+    public float getInitMillis() {
+        return sections[ShowTracer.INIT];
+    }
+
+    /**
+     * @return time spent setting up the dialog window
+     */
+    public float getWindowMillis() {
+        return sections[ShowTracer.WINDOW];
+    }
+
+    /**
+     * @return time spent binding the initial items and starting the open animation
+     */
+    public float getStartMillis() {
+        return sections[ShowTracer.START];
+    }
+
+    /**
+     * @return time spent in the show listener
+     */
+    public float getShownMillis() {
+        return sections[ShowTracer.SHOWN];
+    }
+
+    /**
+     * @return time from the sheet being built to {@link BottomSheet#show()}, which is how long
+     * it was kept around, not how long showing took
+     */
+    public float getBuildToShowMillis() {
+        return buildToShow;
+    }
+
+    /**
+     * @return time from {@link BottomSheet#show()} to the first frame being drawn
+     */
+    public float getFirstFrameMillis() {
+        return firstFrame;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "SheetShowTimings{style=%.1fms, translucent=%.1fms, "
+                        + "init=%.1fms, window=%.1fms, start=%.1fms, shown=%.1fms, "
+                        + "buildToShow=%.1fms, firstFrame=%.1fms}", getStyleMillis(),
+                getTranslucentMillis(), getInitMillis(), getWindowMillis(), getStartMillis(),
+                getShownMillis(), buildToShow, firstFrame);
+    }
+}
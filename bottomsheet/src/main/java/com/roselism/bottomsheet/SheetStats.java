@@ -0,0 +1,130 @@
+package com.roselism.bottomsheet;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters of the work done by sheets, to size pools and caches from production
+ * numbers. Counting is a single uncontended atomic increment; nothing is aggregated until a
+ * {@link #snapshot()} is taken.
+ */
+public final class SheetStats {
+
+    static final int ROW_INFLATIONS = 0;
+    static final int HEADER_INFLATIONS = 1;
+    static final int BINDS = 2;
+    static final int SKIPPED_BINDS = 3;
+    static final int FILLER_ALLOCATIONS = 4;
+    static final int ICON_CACHE_HITS = 5;
+    static final int ICON_CACHE_MISSES = 6;
+    static final int LIST_LAYOUT_PASSES = 7;
+    private static final int COUNT = 8;
+
+    private static final AtomicLongArray sCounters = new AtomicLongArray(COUNT);
+
+    private SheetStats() {
+    }
+
+    static void increment(int counter) {
+        sCounters.getAndIncrement(counter);
+    }
+
+    /**
+     * @return the current value of every counter
+     */
+    public static Snapshot snapshot() {
+        long[] values = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = sCounters.get(i);
+        }
+        return new Snapshot(values);
+    }
+
+    /**
+     * Set every counter back to 0. Counts made while resetting may be lost.
+     */
+    public static void reset() {
+        for (int i = 0; i < COUNT; i++) {
+            sCounters.set(i, 0);
+        }
+    }
+
+    /**
+     * The counters at one point in time. Each counter is read atomically, but not all of them
+     * at the same instant.
+     */
+    public static final class Snapshot {
+
+        private final long[] values;
+
+        Snapshot(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @return how many item rows were inflated, rather than recycled
+         */
+        public long getRowInflations() {
+            return values[ROW_INFLATIONS];
+        }
+
+        /**
+         * @return how many section headers were inflated, rather than recycled
+         */
+        public long getHeaderInflations() {
+            return values[HEADER_INFLATIONS];
+        }
+
+        /**
+         * @return how many times a row was bound to an item it did not show yet
+         */
+        public long getBinds() {
+            return values[BINDS];
+        }
+
+        /**
+         * @return how many binds were skipped because the row already showed the item
+         */
+        public long getSkippedBinds() {
+            return values[SKIPPED_BINDS];
+        }
+
+        /**
+         * @return how many filler views were created to pad the rows before a section header
+         */
+        public long getFillerAllocations() {
+            return values[FILLER_ALLOCATIONS];
+        }
+
+        /**
+         * @return how many activity icons were found in the icon cache
+         */
+        public long getIconCacheHits() {
+            return values[ICON_CACHE_HITS];
+        }
+
+        /**
+         * @return how many activity icons had to be loaded from the package manager
+         */
+        public long getIconCacheMisses() {
+            return values[ICON_CACHE_MISSES];
+        }
+
+        /**
+         * @return how many extra layout passes were caused by fitting the list to its items
+         */
+        public long getListLayoutPasses() {
+            return values[LIST_LAYOUT_PASSES];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "SheetStats{rowInflations=%d, headerInflations=%d, "
+                            + "binds=%d, skippedBinds=%d, fillerAllocations=%d, iconCacheHits=%d, "
+                            + "iconCacheMisses=%d, listLayoutPasses=%d}", values[ROW_INFLATIONS],
+                    values[HEADER_INFLATIONS], values[BINDS], values[SKIPPED_BINDS],
+                    values[FILLER_ALLOCATIONS], values[ICON_CACHE_HITS], values[ICON_CACHE_MISSES],
+                    values[LIST_LAYOUT_PASSES]);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.roselism.bottomsheet;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the phases a sheet goes through from being built to drawing its first frame, and marks
+ * them as trace sections so they show up in system traces. The time to the first frame counts
+ * from {@link BottomSheet#show()}, the time the sheet was kept around before is reported apart.
+ * Only the first show of a sheet is timed; the trace sections are written every time.
+ */
+final class ShowTracer {
+
+    /** Resolving the style attributes in the constructor. */
+    static final int STYLE = 0;
+    /** Setting up translucent system bars in the constructor. */
+    static final int TRANSLUCENT = 1;
+    /** Inflating the layout and setting up the list and its adapter. */
+    static final int INIT = 2;
+    /** Setting up the dialog window. */
+    static final int WINDOW = 3;
+    /** Binding the initial items and starting the open animation. */
+    static final int START = 4;
+    /** Running the show listener. */
+    static final int SHOWN = 5;
+
+    private static final String[] SECTIONS = {"BottomSheet#style", "BottomSheet#translucent",
+            "BottomSheet#init", "BottomSheet#window", "BottomSheet#start", "BottomSheet#shown"};
+
+    private final BottomSheet mSheet;
+    private final long mCreated = System.nanoTime();
+    private long mShown;
+    private final long[] mDurations = new long[SECTIONS.length];
+    private long mSectionStart;
+    private boolean mAwaiting;
+    private SheetShowTimings mTimings;
+
+    ShowTracer(BottomSheet sheet) {
+        mSheet = sheet;
+    }
+
+    /**
+     * Start the clock of the first frame, called when the sheet is asked to show.
+     */
+    void onShow() {
+        if (mTimings == null && !mAwaiting) {
+            mShown = System.nanoTime();
+        }
+    }
+
+    void begin(int section) {
+        beginSection(SECTIONS[section]);
+        mSectionStart = System.nanoTime();
+    }
+
+    void end(int section) {
+        mDurations[section] = System.nanoTime() - mSectionStart;
+        endSection();
+    }
+
+    /**
+     * Complete the timings when {@code view} draws its next frame and report them to
+     * {@code listener}, unless this sheet was already timed.
+     */
+    void awaitFirstFrame(final View view,
+            @Nullable final BottomSheet.OnShowTimingsListener listener) {
+        if (mTimings != null || mAwaiting) {
+            return;
+        }
+        mAwaiting = true;
+        view.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                if (mTimings != null) {
+                    return;
+                }
+                long shown = mShown != 0 ? mShown : mCreated;
+                mTimings = createTimings(shown - mCreated, System.nanoTime() - shown);
+                final ViewTreeObserver.OnDrawListener self = this;
+                // listeners may not be removed, nor views changed, while the tree is drawn
+                view.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        view.getViewTreeObserver().removeOnDrawListener(self);
+                        if (listener != null) {
+                            listener.onShowTimings(mSheet, mTimings);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the timings of the first show, or null until its first frame is drawn
+     */
+    @Nullable
+    SheetShowTimings getTimings() {
+        return mTimings;
+    }
+
+    private SheetShowTimings createTimings(long buildToShow, long firstFrame) {
+        float[] millis = new float[mDurations.length];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = toMillis(mDurations[i]);
+        }
+        return new SheetShowTimings(millis, toMillis(buildToShow), toMillis(firstFrame));
+    }
+
+    private static float toMillis(long nanos) {
+        return nanos / (float) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Start a section of the system trace, on API 18 and above.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
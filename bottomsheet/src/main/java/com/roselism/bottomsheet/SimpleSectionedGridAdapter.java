@@ -11,7 +11,6 @@ import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.GridView;
 import android.widget.ListAdapter;
-import android.widget.ListView;
 import android.widget.TextView;
 
 import java.util.Arrays;
@@ -19,37 +18,27 @@ import java.util.Comparator;
 
 class SimpleSectionedGridAdapter extends BaseAdapter {
 
-    protected static final int TYPE_FILLER        = 0;
-    protected static final int TYPE_HEADER        = 1;
-    protected static final int TYPE_HEADER_FILLER = 2;
+    protected static final int TYPE_FILLER        = SectionIndex.TYPE_FILLER;
+    protected static final int TYPE_HEADER        = SectionIndex.TYPE_HEADER;
+    protected static final int TYPE_HEADER_FILLER = SectionIndex.TYPE_HEADER_FILLER;
     SparseArray<Section> mSections = new SparseArray<Section>();
+    private SectionIndex mIndex = SectionIndex.EMPTY;
+    private SectionIndex mPlannedIndex;
+    private int mPlannedColumns;
     private boolean mValid = true;
-    private int            mSectionResourceId;
     private LayoutInflater mLayoutInflater;
     private ListAdapter    mBaseAdapter;
     private Section[] mInitialSections = new Section[0];
     private Context  mContext;
     private View     mLastViewSeen;
     private int      mHeaderWidth;
+    private int      mHeaderWidthFor;
     private int      mNumColumns;
-    private int      mWidth;
-    private int      mColumnWidth;
-    private int      mHorizontalSpacing;
-    private int      mStrechMode;
-    private int      requestedColumnWidth;
-    private int      requestedHorizontalSpacing;
     private GridView mGridView;
-    private int      mHeaderLayoutResId;
-    private int      mHeaderTextViewResId;
 
-    public SimpleSectionedGridAdapter(Context context, BaseAdapter baseAdapter,
-            int sectionResourceId, int headerLayoutResId,
-            int headerTextViewResId) {
+    public SimpleSectionedGridAdapter(Context context, BaseAdapter baseAdapter) {
         mLayoutInflater = (LayoutInflater) context
                 .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        mSectionResourceId = sectionResourceId;
-        mHeaderLayoutResId = headerLayoutResId;
-        mHeaderTextViewResId = headerTextViewResId;
         mBaseAdapter = baseAdapter;
         mContext = context;
         mBaseAdapter.registerDataSetObserver(new DataSetObserver() {
@@ -73,61 +62,49 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
                     "Does your grid view extends PinnedSectionGridView?");
         }
         mGridView = gridView;
-        mStrechMode = gridView.getStretchMode();
-        mWidth = gridView.getWidth() - (mGridView.getPaddingLeft() + mGridView.getPaddingRight());
         mNumColumns = ((PinnedSectionGridView) gridView).getNumColumns();
-        requestedColumnWidth = ((PinnedSectionGridView) gridView).getColumnWidth();
-        requestedHorizontalSpacing = ((PinnedSectionGridView) gridView).getHorizontalSpacing();
     }
 
     private int getHeaderSize() {
-        if (mHeaderWidth > 0) {
+        PinnedSectionGridView gridView = (PinnedSectionGridView) mGridView;
+        int availableWidth = gridView.getAvailableWidth();
+        if (mHeaderWidth > 0 && availableWidth == mHeaderWidthFor) {
             return mHeaderWidth;
         }
-        if (mWidth != mGridView.getWidth()) {
-            mStrechMode = mGridView.getStretchMode();
-            mWidth = ((PinnedSectionGridView) mGridView).getAvailableWidth() - (
-                    mGridView.getPaddingLeft() + mGridView.getPaddingRight());
-            mNumColumns = ((PinnedSectionGridView) mGridView).getNumColumns();
-            requestedColumnWidth = ((PinnedSectionGridView) mGridView).getColumnWidth();
-            requestedHorizontalSpacing = ((PinnedSectionGridView) mGridView).getHorizontalSpacing();
-        }
+        mHeaderWidthFor = availableWidth;
+        mNumColumns = gridView.getNumColumns();
+        mHeaderWidth = SheetLayoutModel.getHeaderWidth(
+                availableWidth - (gridView.getPaddingLeft() + gridView.getPaddingRight()),
+                mNumColumns, gridView.getColumnWidth(), gridView.getHorizontalSpacing(),
+                gridView.getStretchMode());
+        return mHeaderWidth;
+    }
 
-        int spaceLeftOver = mWidth - (mNumColumns * requestedColumnWidth) -
-                ((mNumColumns - 1) * requestedHorizontalSpacing);
-        switch (mStrechMode) {
-            case GridView.NO_STRETCH:            // Nobody stretches
-                mWidth -= spaceLeftOver;
-                mColumnWidth = requestedColumnWidth;
-                mHorizontalSpacing = requestedHorizontalSpacing;
-                break;
-
-            case GridView.STRETCH_COLUMN_WIDTH:
-                mColumnWidth = requestedColumnWidth + spaceLeftOver / mNumColumns;
-                mHorizontalSpacing = requestedHorizontalSpacing;
-                break;
-
-            case GridView.STRETCH_SPACING:
-                mColumnWidth = requestedColumnWidth;
-                if (mNumColumns > 1) {
-                    mHorizontalSpacing = requestedHorizontalSpacing +
-                            spaceLeftOver / (mNumColumns - 1);
-                } else {
-                    mHorizontalSpacing = requestedHorizontalSpacing + spaceLeftOver;
-                }
-                break;
-
-            case GridView.STRETCH_SPACING_UNIFORM:
-                mColumnWidth = requestedColumnWidth;
-                mHorizontalSpacing = requestedHorizontalSpacing;
-                mWidth = mWidth - spaceLeftOver + (2 * mHorizontalSpacing);
-                break;
+    /**
+     * Called by the grid when its available width changed. Cached header sizes are dropped and
+     * sections, whose fillers depend on the column count, are only rebuilt if that changed.
+     */
+    void onAvailableWidthChanged(boolean columnsChanged) {
+        mHeaderWidth = 0;
+        if (columnsChanged && mInitialSections.length > 0) {
+            setSections();
+        } else if (mSections.size() > 0) {
+            notifyDataSetChanged();
         }
-        mHeaderWidth = mWidth + ((mNumColumns - 1) * (mColumnWidth + mHorizontalSpacing));
-        return mHeaderWidth;
     }
 
     public void setSections(Section... sections) {
+        setSections(null, 0, sections);
+    }
+
+    /**
+     * @param index      where the headers and fillers go, worked out ahead for {@code numColumns}
+     *                   columns, it is only used while the grid has that many
+     * @param numColumns columns {@code index} was built for
+     */
+    void setSections(SectionIndex index, int numColumns, Section... sections) {
+        mPlannedIndex = index;
+        mPlannedColumns = numColumns;
         mInitialSections = sections;
         setSections();
     }
@@ -145,68 +122,57 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
             }
         });
 
-        int offset = 0; // offset positions for the headers we're adding
-        for (int i = 0; i < mInitialSections.length; i++) {
-            Section section = mInitialSections[i];
-            Section sectionAdd;
-
-            for (int j = 0; j < mNumColumns - 1; j++) {
-                sectionAdd = new Section(section.firstPosition, section.title);
-                sectionAdd.type = TYPE_HEADER_FILLER;
-                sectionAdd.sectionedPosition = sectionAdd.firstPosition + offset;
-                mSections.append(sectionAdd.sectionedPosition, sectionAdd);
-                ++offset;
+        if (mPlannedIndex != null && mPlannedColumns == mNumColumns) {
+            mIndex = mPlannedIndex;
+        } else {
+            int[] firstPositions = new int[mInitialSections.length];
+            for (int i = 0; i < firstPositions.length; i++) {
+                firstPositions[i] = mInitialSections[i].firstPosition;
             }
+            mIndex = SectionIndex.build(firstPositions, mNumColumns);
+        }
 
-            sectionAdd = new Section(section.firstPosition, section.title);
-            sectionAdd.type = TYPE_HEADER;
-            sectionAdd.sectionedPosition = sectionAdd.firstPosition + offset;
+        for (int i = 0; i < mIndex.size(); i++) {
+            Section section = mInitialSections[mIndex.getSection(i)];
+            Section sectionAdd = new Section(section.firstPosition, section.title);
+            sectionAdd.type = mIndex.getType(i);
+            sectionAdd.sectionedPosition = mIndex.getSectionedPosition(i);
             mSections.append(sectionAdd.sectionedPosition, sectionAdd);
-            ++offset;
-
-            if (i < mInitialSections.length - 1) {
-                int nextPos = mInitialSections[i + 1].firstPosition;
-                int itemsCount = nextPos - section.firstPosition;
-                int dummyCount = mNumColumns - (itemsCount % mNumColumns);
-                if (mNumColumns != dummyCount) {
-                    for (int k = 0; k < dummyCount; k++) {
-                        sectionAdd = new Section(section.firstPosition, section.title);
-                        sectionAdd.type = TYPE_FILLER;
-                        sectionAdd.sectionedPosition = nextPos + offset;
-                        mSections.append(sectionAdd.sectionedPosition, sectionAdd);
-                        ++offset;
-                    }
-                }
-            }
         }
 
         notifyDataSetChanged();
     }
 
     public int positionToSectionedPosition(int position) {
-        int offset = 0;
-        for (int i = 0; i < mSections.size(); i++) {
-            if (mSections.valueAt(i).firstPosition > position) {
-                break;
-            }
-            ++offset;
-        }
-        return position + offset;
+        return mIndex.positionToSectionedPosition(position);
     }
 
     public int sectionedPositionToPosition(int sectionedPosition) {
-        if (isSectionHeaderPosition(sectionedPosition)) {
-            return ListView.INVALID_POSITION;
-        }
+        return mIndex.sectionedPositionToPosition(sectionedPosition);
+    }
 
-        int offset = 0;
-        for (int i = 0; i < mSections.size(); i++) {
-            if (mSections.valueAt(i).sectionedPosition > sectionedPosition) {
-                break;
-            }
-            --offset;
-        }
-        return sectionedPosition + offset;
+    void clearSections() {
+        mSections.clear();
+        mIndex = SectionIndex.EMPTY;
+        mPlannedIndex = null;
+    }
+
+    int getHeaderCount() {
+        return mIndex.getHeaderCount();
+    }
+
+    /**
+     * @return the sectioned position of the header of the {@code index}th section
+     */
+    int getHeaderPosition(int index) {
+        return mIndex.getHeaderPosition(index);
+    }
+
+    /**
+     * @return the view type of the section headers
+     */
+    int getHeaderViewType() {
+        return mBaseAdapter.getViewTypeCount() + TYPE_HEADER;
     }
 
     public boolean isSectionHeaderPosition(int position) {
@@ -232,10 +198,16 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
                 : mBaseAdapter.getItemId(sectionedPositionToPosition(position));
     }
 
+    /**
+     * Headers, header fillers and fillers each get a view type of their own after the base
+     * adapter's types, so a recycled view of a section position always has the right kind and
+     * every kind is only inflated until one instance can be recycled.
+     */
     @Override
     public int getItemViewType(int position) {
-        return isSectionHeaderPosition(position)
-                ? getViewTypeCount() - 1
+        Section section = mSections.get(position);
+        return section != null
+                ? mBaseAdapter.getViewTypeCount() + section.type
                 : mBaseAdapter.getItemViewType(sectionedPositionToPosition(position));
     }
 
@@ -249,7 +221,7 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
 
     @Override
     public int getViewTypeCount() {
-        return mBaseAdapter.getViewTypeCount() + 1; // the section headings
+        return mBaseAdapter.getViewTypeCount() + 3; // filler, header, header filler
     }
 
     @Override
@@ -269,35 +241,17 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        if (isSectionHeaderPosition(position)) {
-            HeaderLayout header;
-            TextView view;
-            if (null == convertView) {
-                convertView = mLayoutInflater.inflate(mSectionResourceId, parent, false);
-            } else {
-                if (null == convertView.findViewById(mHeaderLayoutResId)) {
-                    convertView = mLayoutInflater.inflate(mSectionResourceId, parent, false);
-                }
-            }
-            switch (mSections.get(position).type) {
+        Section section = mSections.get(position);
+        if (section != null) {
+            switch (section.type) {
                 case TYPE_HEADER:
-                    header = (HeaderLayout) convertView.findViewById(mHeaderLayoutResId);
-                    if (!TextUtils.isEmpty(mSections.get(position).title)) {
-                        view = (TextView) convertView.findViewById(mHeaderTextViewResId);
-                        view.setText(mSections.get(position).title);
-                    }
-                    header.setHeaderWidth(getHeaderSize());
+                    convertView = bindHeader(convertView, parent, section, getHeaderSize());
                     break;
                 case TYPE_HEADER_FILLER:
-                    header = (HeaderLayout) convertView.findViewById(mHeaderLayoutResId);
-                    if (!TextUtils.isEmpty(mSections.get(position).title)) {
-                        view = (TextView) convertView.findViewById(mHeaderTextViewResId);
-                        view.setText(mSections.get(position).title);
-                    }
-                    header.setHeaderWidth(0);
+                    convertView = bindHeader(convertView, parent, section, 0);
                     break;
                 default:
-                    convertView = getFillerView(mLastViewSeen);
+                    convertView = getFillerView(convertView, mLastViewSeen);
             }
         } else {
             convertView = mBaseAdapter
@@ -307,14 +261,32 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
         return convertView;
     }
 
-    private FillerView getFillerView(final View lastViewSeen) {
-        final FillerView fillerView = new FillerView(mContext);
-        fillerView.setMeasureTarget(lastViewSeen);
-        return fillerView;
+    private View bindHeader(View convertView, ViewGroup parent, Section section, int width) {
+        BsListDividerBinder header;
+        if (convertView == null) {
+            header = BsListDividerBinder.inflate(mLayoutInflater, parent);
+            SheetStats.increment(SheetStats.HEADER_INFLATIONS);
+            header.root.setTag(header);
+        } else {
+            header = (BsListDividerBinder) convertView.getTag();
+        }
+        if (section.hasTitle && header.header instanceof TextView) {
+            ((TextView) header.header).setText(section.title);
+        }
+        header.headerlayout.setHeaderWidth(width);
+        return header.root;
     }
 
-    public int getHeaderLayoutResId() {
-        return mHeaderLayoutResId;
+    private FillerView getFillerView(View convertView, final View lastViewSeen) {
+        final FillerView fillerView;
+        if (convertView != null) {
+            fillerView = (FillerView) convertView;
+        } else {
+            fillerView = new FillerView(mContext);
+            SheetStats.increment(SheetStats.FILLER_ALLOCATIONS);
+        }
+        fillerView.setMeasureTarget(lastViewSeen);
+        return fillerView;
     }
 
     public static class Section {
@@ -322,11 +294,13 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
         int          firstPosition;
         int          sectionedPosition;
         CharSequence title;
+        boolean      hasTitle;
         int type = 0;
 
         public Section(int firstPosition, CharSequence title) {
             this.firstPosition = firstPosition;
             this.title = title;
+            this.hasTitle = !TextUtils.isEmpty(title);
         }
 
         public CharSequence getTitle() {
@@ -334,22 +308,4 @@ class SimpleSectionedGridAdapter extends BaseAdapter {
         }
     }
 
-    public static class ViewHolder {
-
-        @SuppressWarnings("unchecked")
-        public static <T extends View> T get(View view, int id) {
-            SparseArray<View> viewHolder = (SparseArray<View>) view.getTag();
-            if (viewHolder == null) {
-                viewHolder = new SparseArray<View>();
-                view.setTag(viewHolder);
-            }
-            View childView = viewHolder.get(id);
-            if (childView == null) {
-                childView = view.findViewById(id);
-                viewHolder.put(id, childView);
-            }
-            return (T) childView;
-        }
-    }
-
 }
\ No newline at end of file
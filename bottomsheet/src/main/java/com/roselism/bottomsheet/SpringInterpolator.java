@@ -0,0 +1,75 @@
+package com.roselism.bottomsheet;
+
+import android.view.animation.Interpolator;
+
+/**
+ * Interpolator following a damped spring that starts with a given velocity. The spring is
+ * solved in closed form, so every frame costs the same whatever the elapsed time, and the
+ * duration is chosen so the remaining motion is below half a pixel.
+ */
+final class SpringInterpolator implements Interpolator {
+
+    private static final long MIN_DURATION = 120;
+    private static final long MAX_DURATION = 600;
+    private static final float REST_THRESHOLD = 0.5f;
+
+    private final double mOmega;
+    private final double mDamping;
+    private final double mDampedOmega;
+    private final double mCoefficient;
+    private final long mDuration;
+
+    /**
+     * @param stiffness    spring stiffness for a unit mass
+     * @param dampingRatio 1 for a critically damped spring, lower values overshoot
+     * @param distance     pixels to travel, signed
+     * @param velocity     pixels per second at the start, on the same axis as {@code distance}
+     */
+    SpringInterpolator(float stiffness, float dampingRatio, float distance, float velocity) {
+        mOmega = Math.sqrt(stiffness);
+        mDamping = Math.min(1, dampingRatio);
+        mDampedOmega = mOmega * Math.sqrt(1 - mDamping * mDamping);
+        // the spring is solved for a displacement going from 1 to 0
+        double start = distance == 0 ? 0 : -velocity / distance;
+
+        double range = Math.abs(distance) / REST_THRESHOLD;
+        double settle = 0;
+        if (mDampedOmega > 0) {
+            mCoefficient = (start + mDamping * mOmega) / mDampedOmega;
+            range *= Math.sqrt(1 + mCoefficient * mCoefficient);
+            if (range > 1) {
+                settle = Math.log(range) / (mDamping * mOmega);
+            }
+        } else {
+            mCoefficient = start + mOmega;
+            if (range > 1) {
+                // one step towards solving (1 + c * t) * exp(-omega * t) = 1 / range
+                settle = Math.log(range) / mOmega;
+                settle = Math.log(range * (1 + Math.abs(mCoefficient) * settle)) / mOmega;
+            }
+        }
+        long duration = (long) (settle * 1000);
+        mDuration = Math.max(MIN_DURATION, Math.min(MAX_DURATION, duration));
+    }
+
+    long getDuration() {
+        return mDuration;
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input >= 1) {
+            return 1;
+        }
+        double t = input * mDuration / 1000d;
+        double decay = Math.exp(-mDamping * mOmega * t);
+        double displacement;
+        if (mDampedOmega > 0) {
+            displacement = decay * (Math.cos(mDampedOmega * t)
+                    + mCoefficient * Math.sin(mDampedOmega * t));
+        } else {
+            displacement = decay * (1 + mCoefficient * t);
+        }
+        return (float) (1 - displacement);
+    }
+}
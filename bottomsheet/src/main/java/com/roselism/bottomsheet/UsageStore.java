@@ -0,0 +1,249 @@
+package com.roselism.bottomsheet;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.AtomicFile;
+import android.view.MenuItem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How often the items of ranked sheets were picked, as a score that halves every
+ * {@link #HALF_LIFE} so recent picks count more than old ones. Scores are kept in memory and
+ * written to a small file on a background thread, at most once per {@link #WRITE_DELAY}. The
+ * file is read on that thread as soon as the store is first used, so showing a sheet never waits
+ * for the disk.
+ */
+final class UsageStore {
+
+    private static final String FILE_NAME = "bottomsheet_usage";
+    private static final int VERSION = 1;
+    private static final long HALF_LIFE = 7 * 24 * 60 * 60 * 1000L;
+    private static final long WRITE_DELAY = 2000;
+    /** Scores that decayed below this are not written back. */
+    private static final float MIN_SCORE = 0.01f;
+    private static final char SEPARATOR = '\u001f';
+
+    private static UsageStore sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // guarded by this
+    private final HashMap<String, Entry> mEntries = new HashMap<>();
+    private final ArrayList<Runnable> mLoadedActions = new ArrayList<>();
+    private boolean mLoaded;
+    private boolean mWriteScheduled;
+    // only used on the background thread
+    private AtomicFile mFile;
+
+    private final Runnable mLoad = new Runnable() {
+        @Override
+        public void run() {
+            load();
+        }
+    };
+
+    private final Runnable mWrite = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    private UsageStore(Context context) {
+        mContext = context;
+        HandlerThread thread = new HandlerThread("BottomSheetUsage",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+        mHandler.post(mLoad);
+    }
+
+    /**
+     * @return the store of the app, which starts loading the first time this is called
+     */
+    static synchronized UsageStore get(Context context) {
+        if (sInstance == null) {
+            sInstance = new UsageStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return the key an item is stored under, its id if it has one and its title otherwise
+     */
+    static String getItemKey(MenuItem item) {
+        if (item.getItemId() != 0) {
+            return "#" + item.getItemId();
+        }
+        CharSequence title = BottomSheet.getItemTitle(item);
+        return "t" + (title == null ? "" : title);
+    }
+
+    private static String key(String sheet, String item) {
+        return sheet + SEPARATOR + item;
+    }
+
+    synchronized boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Block until the stored scores are loaded. Must not be called on the main thread.
+     */
+    synchronized void awaitLoaded() {
+        while (!mLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run {@code action} on the main thread once the stored scores are loaded, soon if they
+     * already are.
+     */
+    synchronized void whenLoaded(Runnable action) {
+        if (mLoaded) {
+            mMainHandler.post(action);
+        } else {
+            mLoadedActions.add(action);
+        }
+    }
+
+    /**
+     * @return the current score of {@code item} in the sheet with key {@code sheet}
+     */
+    synchronized float getScore(String sheet, MenuItem item) {
+        Entry entry = mEntries.get(key(sheet, getItemKey(item)));
+        return entry == null ? 0 : entry.scoreAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Count a pick of {@code item} and schedule writing the scores.
+     */
+    synchronized void record(String sheet, MenuItem item) {
+        String key = key(sheet, getItemKey(item));
+        long now = System.currentTimeMillis();
+        Entry entry = mEntries.get(key);
+        mEntries.put(key, new Entry(entry == null ? 1 : entry.scoreAt(now) + 1, now));
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            mHandler.postDelayed(mWrite, WRITE_DELAY);
+        }
+    }
+
+    private void load() {
+        mFile = new AtomicFile(new File(mContext.getFilesDir(), FILE_NAME));
+        HashMap<String, Entry> stored = new HashMap<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(mFile.openRead()));
+            if (in.readInt() == VERSION) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    stored.put(in.readUTF(), new Entry(in.readFloat(), in.readLong()));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // nothing was picked yet
+        } catch (IOException e) {
+            // a damaged file only costs the ranking, start over
+            stored.clear();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        synchronized (this) {
+            // keep the picks made while loading
+            for (Map.Entry<String, Entry> e : stored.entrySet()) {
+                Entry recorded = mEntries.get(e.getKey());
+                mEntries.put(e.getKey(),
+                        recorded == null ? e.getValue() : e.getValue().plus(recorded));
+            }
+            mLoaded = true;
+            notifyAll();
+            for (Runnable action : mLoadedActions) {
+                mMainHandler.post(action);
+            }
+            mLoadedActions.clear();
+        }
+    }
+
+    private void write() {
+        long now = System.currentTimeMillis();
+        ArrayList<String> keys = new ArrayList<>();
+        ArrayList<Entry> entries = new ArrayList<>();
+        synchronized (this) {
+            mWriteScheduled = false;
+            for (Map.Entry<String, Entry> e : mEntries.entrySet()) {
+                if (e.getValue().scoreAt(now) >= MIN_SCORE) {
+                    keys.add(e.getKey());
+                    entries.add(e.getValue());
+                }
+            }
+        }
+        FileOutputStream stream = null;
+        try {
+            stream = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(VERSION);
+            out.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeUTF(keys.get(i));
+                out.writeFloat(entries.get(i).score);
+                out.writeLong(entries.get(i).time);
+            }
+            out.flush();
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * A score as of the time it was last changed.
+     */
+    private static final class Entry {
+
+        final float score;
+        final long time;
+
+        Entry(float score, long time) {
+            this.score = score;
+            this.time = time;
+        }
+
+        float scoreAt(long now) {
+            return (float) (score * Math.pow(0.5, Math.max(0, now - time) / (double) HALF_LIFE));
+        }
+
+        Entry plus(Entry other) {
+            long now = Math.max(time, other.time);
+            return new Entry(scoreAt(now) + other.scoreAt(now), now);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.roselism.bottomsheet;
+
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Runtime support for the binders generated by {@code viewbinders.gradle}.
+ */
+final class ViewBinders {
+
+    private ViewBinders() {
+    }
+
+    /**
+     * @return the child at {@code index}, or null if the hierarchy differs from the layout xml
+     */
+    @Nullable
+    static View child(@Nullable View parent, int index) {
+        if (!(parent instanceof ViewGroup)) {
+            return null;
+        }
+        ViewGroup group = (ViewGroup) parent;
+        return index < group.getChildCount() ? group.getChildAt(index) : null;
+    }
+
+    /**
+     * @return {@code candidate} if it carries {@code id}, otherwise the result of a tree search,
+     * e.g. when an app overrides the layout with a different structure
+     */
+    static View resolve(View root, @Nullable View candidate, int id) {
+        if (candidate != null && candidate.getId() == id) {
+            return candidate;
+        }
+        return root.findViewById(id);
+    }
+}
@@ -0,0 +1,79 @@
+package com.roselism.bottomsheet;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BuilderClickListenerTest {
+
+    private static final BottomSheet.ItemProvider PROVIDER = new BottomSheet.ItemProvider() {
+        @Override
+        public void onLoadItems(BottomSheet.ItemSink sink) {
+        }
+
+        @Override
+        public void onCancel() {
+        }
+    };
+
+    @Test
+    public void itemsBeforeSheet_listenerStaysWithItsItem() {
+        View.OnClickListener listener = new Listener();
+        BottomSheet.Builder builder = new BottomSheet.Builder(null, 0)
+                .items(PROVIDER, 3)
+                .sheet("A", listener);
+        ActionMenu menu = builder.getMenu();
+
+        assertEquals(4, menu.size());
+        for (int i = 0; i < 3; i++) {
+            assertNull(item(menu, i).getViewClickListener());
+        }
+        ActionMenuItem a = item(menu, 3);
+        assertSame(listener, a.getViewClickListener());
+
+        // no item arrived for the placeholders
+        menu.removeItems(R.id.bs_placeholder);
+
+        assertEquals(1, menu.size());
+        assertSame(a, item(menu, 0));
+        assertSame(listener, a.getViewClickListener());
+    }
+
+    @Test
+    public void rank_listenersMoveWithTheirItems() {
+        View.OnClickListener listenerA = new Listener();
+        View.OnClickListener listenerC = new Listener();
+        BottomSheet.Builder builder = new BottomSheet.Builder(null, 0)
+                .sheet("A", listenerA)
+                .sheet(1, "B")
+                .sheet("C", listenerC);
+        ActionMenu menu = builder.getMenu();
+        ActionMenuItem a = item(menu, 0);
+        ActionMenuItem b = item(menu, 1);
+        ActionMenuItem c = item(menu, 2);
+
+        menu.rank(new float[]{0, 2, 1});
+
+        assertSame(b, item(menu, 0));
+        assertSame(c, item(menu, 1));
+        assertSame(a, item(menu, 2));
+        assertNull(b.getViewClickListener());
+        assertSame(listenerC, c.getViewClickListener());
+        assertSame(listenerA, a.getViewClickListener());
+    }
+
+    private static ActionMenuItem item(ActionMenu menu, int index) {
+        return (ActionMenuItem) menu.getItem(index);
+    }
+
+    private static final class Listener implements View.OnClickListener {
+
+        @Override
+        public void onClick(View v) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.roselism.bottomsheet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SearchIndexTest {
+
+    private static final SearchIndex APPS = SearchIndex.build(new String[][]{
+            {"Google Drive", null},
+            {"Google Maps", "Directions"},
+            {"Dropbox", null},
+            {"Gmail", "Mail from Google"},
+    });
+
+    @Test
+    public void everyTermMustStartAWord() {
+        assertArrayEquals(new int[]{0}, APPS.query("go dr"));
+        assertArrayEquals(new int[]{0, 1}, APPS.query("go d"));
+        assertArrayEquals(new int[]{0, 2}, APPS.query("dr"));
+        assertArrayEquals(new int[]{0, 1, 3}, APPS.query("goo"));
+        // "ogle" is inside a word, not at its start
+        assertSame(SearchIndex.NO_MATCH, APPS.query("ogle"));
+    }
+
+    @Test
+    public void termsMatchAnyTextOfTheItem() {
+        assertArrayEquals(new int[]{3}, APPS.query("gmail google"));
+        assertArrayEquals(new int[]{1}, APPS.query("maps directions"));
+    }
+
+    @Test
+    public void matchingIgnoresCase() {
+        assertArrayEquals(new int[]{0}, APPS.query("GO Dr"));
+        assertArrayEquals(new int[]{2}, APPS.query("DROPBOX"));
+    }
+
+    @Test
+    public void wordUsedTwiceByAnItem_matchesItOnce() {
+        SearchIndex index = SearchIndex.build(new String[][]{
+                {"Mail mail", "mail"},
+                {"Maps", null},
+        });
+
+        assertArrayEquals(new int[]{0, 1}, index.query("ma"));
+        assertArrayEquals(new int[]{0}, index.query("mail mail"));
+    }
+
+    @Test
+    public void nullTexts_areSkipped() {
+        SearchIndex index = SearchIndex.build(new String[][]{
+                {null, null},
+                {null, "Camera"},
+        });
+
+        assertEquals(2, index.getItemCount());
+        assertArrayEquals(new int[]{1}, index.query("cam"));
+    }
+
+    @Test
+    public void prefixPastTheLastWord_matchesNothing() {
+        assertSame(SearchIndex.NO_MATCH, APPS.query("zz"));
+        assertSame(SearchIndex.NO_MATCH, APPS.query("mapsx"));
+        assertSame(SearchIndex.NO_MATCH, APPS.query("go zz"));
+    }
+
+    @Test
+    public void queryWithoutTerms_matchesEveryItem() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, APPS.query(""));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, APPS.query("  - "));
+    }
+
+    @Test
+    public void emptyIndex_matchesNothing() {
+        SearchIndex index = SearchIndex.build(new String[0][]);
+
+        assertEquals(0, index.getItemCount());
+        assertArrayEquals(new int[0], index.query(""));
+        assertSame(SearchIndex.NO_MATCH, index.query("go"));
+    }
+
+    @Test
+    public void cancelledQuery_returnsNull() {
+        assertNull(APPS.query("go", new SearchIndex.Cancellation() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        }));
+    }
+
+    @Test
+    public void split_lowerCasesOnNonLetters() {
+        assertEquals(3, SearchIndex.split("Go, DR-ive").length);
+        assertEquals("go", SearchIndex.split("Go, DR-ive")[0]);
+        assertEquals("dr", SearchIndex.split("Go, DR-ive")[1]);
+        assertEquals(0, SearchIndex.split(" .. ").length);
+    }
+}
@@ -0,0 +1,180 @@
+package com.roselism.bottomsheet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SectionIndexTest {
+
+    @Test
+    public void noSections_mapsPositionsToThemselves() {
+        SectionIndex index = SectionIndex.build(new int[0], 3);
+
+        assertSame(SectionIndex.EMPTY, index);
+        assertEquals(0, index.size());
+        assertEquals(0, index.positionToSectionedPosition(0));
+        assertEquals(4, index.positionToSectionedPosition(4));
+        assertEquals(4, index.sectionedPositionToPosition(4));
+        assertEquals(-1, index.indexOf(0));
+    }
+
+    @Test
+    public void singleColumn_headersOnly() {
+        // H0 i0 i1 i2 H1 i3 i4
+        SectionIndex index = SectionIndex.build(new int[]{0, 3}, 1);
+
+        assertEquals(2, index.size());
+        assertEquals(0, index.getHeaderPosition(0));
+        assertEquals(4, index.getHeaderPosition(1));
+        assertEquals(1, index.positionToSectionedPosition(0));
+        assertEquals(3, index.positionToSectionedPosition(2));
+        assertEquals(5, index.positionToSectionedPosition(3));
+        assertEquals(6, index.positionToSectionedPosition(4));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(0));
+        assertEquals(0, index.sectionedPositionToPosition(1));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(4));
+        assertEquals(3, index.sectionedPositionToPosition(5));
+        assertEquals(4, index.sectionedPositionToPosition(6));
+    }
+
+    @Test
+    public void grid_headerFillersAndFillers() {
+        // HF HF H0 | i0 i1 i2 | i3 F F | HF HF H1 | i4 i5
+        SectionIndex index = SectionIndex.build(new int[]{0, 4}, 3);
+
+        assertEquals(8, index.size());
+        assertEntry(index, 0, SectionIndex.TYPE_HEADER_FILLER, 0);
+        assertEntry(index, 1, SectionIndex.TYPE_HEADER_FILLER, 0);
+        assertEntry(index, 2, SectionIndex.TYPE_HEADER, 0);
+        assertEntry(index, 7, SectionIndex.TYPE_FILLER, 0);
+        assertEntry(index, 8, SectionIndex.TYPE_FILLER, 0);
+        assertEntry(index, 9, SectionIndex.TYPE_HEADER_FILLER, 1);
+        assertEntry(index, 11, SectionIndex.TYPE_HEADER, 1);
+        assertEquals(-1, index.indexOf(3));
+        assertEquals(-1, index.indexOf(6));
+
+        // the fillers after the last item of a section come after it, not before
+        assertEquals(3, index.positionToSectionedPosition(0));
+        assertEquals(6, index.positionToSectionedPosition(3));
+        assertEquals(12, index.positionToSectionedPosition(4));
+        assertEquals(13, index.positionToSectionedPosition(5));
+        assertEquals(0, index.sectionedPositionToPosition(3));
+        assertEquals(3, index.sectionedPositionToPosition(6));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(7));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(8));
+        assertEquals(4, index.sectionedPositionToPosition(12));
+        assertEquals(5, index.sectionedPositionToPosition(13));
+    }
+
+    @Test
+    public void emptySection_getsAHeaderAndNoFillers() {
+        // HF H0 | i0 i1 | HF H1 | HF H2 | i2
+        SectionIndex index = SectionIndex.build(new int[]{0, 2, 2}, 2);
+
+        assertEquals(6, index.size());
+        assertEquals(1, index.getHeaderPosition(0));
+        assertEquals(5, index.getHeaderPosition(1));
+        assertEquals(7, index.getHeaderPosition(2));
+        assertEquals(3, index.positionToSectionedPosition(1));
+        assertEquals(8, index.positionToSectionedPosition(2));
+        assertEquals(2, index.sectionedPositionToPosition(8));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(6));
+    }
+
+    @Test
+    public void itemsBeforeTheFirstSection_areNotMoved() {
+        // i0 i1 | HF H0 | i2
+        SectionIndex index = SectionIndex.build(new int[]{2}, 2);
+
+        assertEquals(0, index.positionToSectionedPosition(0));
+        assertEquals(1, index.positionToSectionedPosition(1));
+        assertEquals(4, index.positionToSectionedPosition(2));
+        assertEquals(1, index.sectionedPositionToPosition(1));
+        assertEquals(SectionIndex.INVALID_POSITION, index.sectionedPositionToPosition(3));
+        assertEquals(2, index.sectionedPositionToPosition(4));
+    }
+
+    @Test
+    public void randomLayouts_matchALaidOutGrid() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int count = random.nextInt(30);
+            int columns = 1 + random.nextInt(4);
+            int[] starts = randomStarts(random, count);
+            SectionIndex index = SectionIndex.build(starts, columns);
+            List<int[]> grid = layOut(starts, count, columns);
+
+            int entries = 0;
+            for (int sectioned = 0; sectioned < grid.size(); sectioned++) {
+                int[] cell = grid.get(sectioned);
+                if (cell[0] == ITEM) {
+                    assertEquals(sectioned, index.positionToSectionedPosition(cell[1]));
+                    assertEquals(cell[1], index.sectionedPositionToPosition(sectioned));
+                    assertEquals(-1, index.indexOf(sectioned));
+                } else {
+                    int i = index.indexOf(sectioned);
+                    assertEquals(entries++, i);
+                    assertEquals(cell[0], index.getType(i));
+                    assertEquals(cell[1], index.getSection(i));
+                    assertEquals(SectionIndex.INVALID_POSITION,
+                            index.sectionedPositionToPosition(sectioned));
+                }
+            }
+            assertEquals(entries, index.size());
+        }
+    }
+
+    private static final int ITEM = -1;
+
+    private static void assertEntry(SectionIndex index, int sectionedPosition, int type,
+            int section) {
+        int i = index.indexOf(sectionedPosition);
+        assertEquals(sectionedPosition, index.getSectionedPosition(i));
+        assertEquals(type, index.getType(i));
+        assertEquals(section, index.getSection(i));
+    }
+
+    private static int[] randomStarts(Random random, int count) {
+        int[] starts = new int[random.nextInt(5)];
+        int position = random.nextInt(3);
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = Math.min(count, position);
+            position += random.nextInt(5);
+        }
+        return starts;
+    }
+
+    /**
+     * @return every cell of the grid as {type, section} for headers and fillers and
+     * {ITEM, position} for items, laid out one by one
+     */
+    private static List<int[]> layOut(int[] starts, int count, int columns) {
+        List<int[]> grid = new ArrayList<>();
+        int section = 0;
+        for (int position = 0; position <= count; position++) {
+            while (section < starts.length && starts[section] == position) {
+                if (section > 0) {
+                    int items = starts[section] - starts[section - 1];
+                    int fillers = items % columns == 0 ? 0 : columns - items % columns;
+                    for (int k = 0; k < fillers; k++) {
+                        grid.add(new int[]{SectionIndex.TYPE_FILLER, section - 1});
+                    }
+                }
+                for (int k = 0; k < columns - 1; k++) {
+                    grid.add(new int[]{SectionIndex.TYPE_HEADER_FILLER, section});
+                }
+                grid.add(new int[]{SectionIndex.TYPE_HEADER, section});
+                section++;
+            }
+            if (position < count) {
+                grid.add(new int[]{ITEM, position});
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,151 @@
+package com.roselism.bottomsheet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SheetLayoutModelTest {
+
+    @Test
+    public void noLimit_isNeverCollapsible() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 100, 1, 0);
+
+        assertFalse(model.isCollapsible());
+        assertEquals(100, model.getShortCount());
+    }
+
+    @Test
+    public void itemsFillingTheLimit_fitWithoutMoreItem() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 5, 1, 5);
+
+        assertFalse(model.isCollapsible());
+        assertEquals(5, model.getShortCount());
+    }
+
+    @Test
+    public void oneItemOverTheLimit_leavesRoomForTheMoreItem() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 6, 1, 5);
+
+        assertTrue(model.isCollapsible());
+        assertEquals(4, model.getShortCount());
+    }
+
+    @Test
+    public void gridLimit_countsRowsOfColumns() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 10, 3, 2);
+
+        assertEquals(3, model.getNumColumns());
+        assertTrue(model.isCollapsible());
+        assertEquals(5, model.getShortCount());
+        assertFalse(new SheetLayoutModel(null, 6, 3, 2).isCollapsible());
+    }
+
+    @Test
+    public void columns_areAtLeastOne() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 3, 0, 2);
+
+        assertEquals(1, model.getNumColumns());
+        assertEquals(1, model.getShortCount());
+    }
+
+    @Test
+    public void emptySheet_isNotCollapsible() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 0, 1, 5);
+
+        assertFalse(model.isCollapsible());
+        assertEquals(0, model.getShortCount());
+        assertEquals(0, model.getItemCount());
+    }
+
+    @Test
+    public void groups_planTheSections() {
+        // i0 i1 H1 i2 i3 H2 i4
+        SheetLayoutModel model = new SheetLayoutModel(new int[]{0, 0, 1, 1, 2}, 5, 1, 0);
+
+        assertArrayEquals(new int[]{2, 4}, model.getSectionStarts());
+        assertEquals(2, model.getSectionIndex().getHeaderCount());
+        assertEquals(3, model.getSectionIndex().positionToSectionedPosition(2));
+        assertEquals(7, model.getRowCount());
+    }
+
+    @Test
+    public void noGroups_planNoSections() {
+        SheetLayoutModel model = new SheetLayoutModel(null, 5, 2, 0);
+
+        assertEquals(0, model.getSectionStarts().length);
+        assertSame(SectionIndex.EMPTY, model.getSectionIndex());
+        assertEquals(3, model.getRowCount());
+    }
+
+    @Test
+    public void listHeight_addsRowsHeadersAndSpacing() {
+        SheetLayoutModel model = new SheetLayoutModel(new int[]{0, 0, 1}, 3, 1, 0);
+
+        // i0 i1 H i2
+        assertEquals(10 + 20 + 5 + 30 + 3 * 2,
+                model.getListHeight(new int[]{10, 20, 30}, 5, 2));
+    }
+
+    @Test
+    public void listHeight_gridRowIsItsTallestCell() {
+        // i0 i1 | HF H1 | i2
+        SheetLayoutModel model = new SheetLayoutModel(new int[]{0, 0, 1}, 3, 2, 0);
+
+        assertEquals(3, model.getRowCount());
+        assertEquals(30 + 8 + 40, model.getListHeight(new int[]{10, 30, 40}, 8, 0));
+    }
+
+    @Test
+    public void listHeight_emptySheet() {
+        assertEquals(0, new SheetLayoutModel(null, 0, 1, 0).getListHeight(new int[0], 5, 2));
+    }
+
+    @Test
+    public void findSectionStarts_wherePreviousGroupDiffers() {
+        assertArrayEquals(new int[0], SheetLayoutModel.findSectionStarts(new int[0], 0));
+        assertArrayEquals(new int[0], SheetLayoutModel.findSectionStarts(new int[]{1, 1, 1}, 3));
+        assertArrayEquals(new int[]{2, 3},
+                SheetLayoutModel.findSectionStarts(new int[]{0, 0, 1, 0, 0}, 5));
+        // only the first count ids are looked at
+        assertArrayEquals(new int[]{1},
+                SheetLayoutModel.findSectionStarts(new int[]{0, 1, 1, 2}, 3));
+    }
+
+    @Test
+    public void headerWidth_noStretchLeavesTheLeftOverOut() {
+        // 3 columns of 100 with 10 spacing in 400 leave 80 over, the row is 320 wide and the
+        // header reaches over the two column steps of 110 before its cell
+        assertEquals(540, SheetLayoutModel.getHeaderWidth(400, 3, 100, 10,
+                SheetLayoutModel.NO_STRETCH));
+    }
+
+    @Test
+    public void headerWidth_stretchColumnWidthWidensTheColumns() {
+        // 10 left over widens each of the 4 columns of 90 to 92
+        assertEquals(400 + 3 * 102, SheetLayoutModel.getHeaderWidth(400, 4, 90, 10,
+                SheetLayoutModel.STRETCH_COLUMN_WIDTH));
+    }
+
+    @Test
+    public void headerWidth_stretchSpacingWidensTheSpacing() {
+        // 80 left over widens the 2 gaps of 10 to 50
+        assertEquals(400 + 2 * 150, SheetLayoutModel.getHeaderWidth(400, 3, 100, 10,
+                SheetLayoutModel.STRETCH_SPACING));
+    }
+
+    @Test
+    public void headerWidth_stretchSpacingUniformAddsOuterSpacing() {
+        assertEquals(320 + 20 + 2 * 110, SheetLayoutModel.getHeaderWidth(400, 3, 100, 10,
+                SheetLayoutModel.STRETCH_SPACING_UNIFORM));
+    }
+
+    @Test
+    public void headerWidth_singleColumnIsTheAvailableWidth() {
+        assertEquals(400, SheetLayoutModel.getHeaderWidth(400, 1, 400, 0,
+                SheetLayoutModel.STRETCH_COLUMN_WIDTH));
+    }
+}